@@ -0,0 +1,251 @@
+package myCollections;
+
+/**
+ * Blocked Bloom filter that answers whether an element is definitely absent or might be present.
+ * All the bits of an element are set inside one block of 512 bits, which is a single cache line, so a lookup touches one line of memory
+ * no matter how many hash functions are used.
+ * @author Renato Scudere
+ */
+public class BloomFilter {
+
+	/**
+	 * The number of longs in a block. Eight longs make 512 bits, one cache line.
+	 */
+	static final int BLOCK_LONGS = 8;
+
+	/**
+	 * The largest number of blocks a filter may have, which keeps the bit array within 1 GiB.
+	 */
+	static final int MAXIMUM_BLOCKS = 1 << 24;
+
+	/**
+	 * The largest number of hash functions a filter may use.
+	 */
+	static final int MAXIMUM_HASHES = 16;
+
+	/**
+	 * The bits of the filter, grouped into blocks of BLOCK_LONGS longs.
+	 */
+	private final long[] bits;
+
+	/**
+	 * The number of bits set for each element.
+	 */
+	private final int numHashes;
+
+	/**
+	 * The number of elements the filter was sized for.
+	 */
+	private final long expectedInsertions;
+
+	/**
+	 * Constructor creates a filter sized for the given number of elements and false positive probability.
+	 * @param expectedInsertions The number of elements expected to be added.
+	 * @param fpp The wanted false positive probability once that many elements are added.
+	 * @throws IllegalArgumentException if the expected insertions are not positive or the probability is not between 0 and 1.
+	 */
+	public BloomFilter(long expectedInsertions, double fpp) {
+
+		this(optimalBits(expectedInsertions, fpp), expectedInsertions);
+	}
+
+	/**
+	 * Constructor creates a filter with a fixed bit budget, and picks the number of hash functions that suits the expected number of elements.
+	 * @param bitBudget The number of bits the filter may use. It is rounded to a power of two number of blocks.
+	 * @param expectedInsertions The number of elements expected to be added.
+	 * @throws IllegalArgumentException if the bit budget or expected insertions are not positive.
+	 */
+	public BloomFilter(long bitBudget, long expectedInsertions) {
+
+		if(bitBudget <= 0 || expectedInsertions <= 0)
+			throw new IllegalArgumentException("The bit budget and expected insertions must be positive.");
+
+		bits = new long[blocksFor(bitBudget) * BLOCK_LONGS];
+		numHashes = optimalHashes(bits.length * 64L, expectedInsertions);
+		this.expectedInsertions = expectedInsertions;
+	}
+
+	/**
+	 * Adds an element to the filter.
+	 * @param o The element being added.
+	 * @return True if any bit changed, which means the element was definitely not in the filter before.
+	 * @throws NullPointerException if the element is null.
+	 */
+	public boolean add(Object o) {
+
+		int hash = o.hashCode();
+		int base = block(hash, bits.length / BLOCK_LONGS) * BLOCK_LONGS;
+		int g = spread(hash);
+		boolean changed = false;
+
+		for(int i = 0; i < numHashes; i++)
+		{
+			//The top 9 bits of g pick one of the 512 bits of the block.
+			int bit = g >>> 23;
+			long mask = 1L << bit;
+			int word = base + (bit >>> 6);
+
+			changed |= (bits[word] & mask) == 0;
+			bits[word] |= mask;
+			g = next(g);
+		}
+
+		return changed;
+	}
+
+	/**
+	 * Checks whether an element might be in the filter.
+	 * @param o The element being looked for.
+	 * @return False if the element was definitely never added, true if it might have been.
+	 */
+	public boolean mightContain(Object o) {
+
+		if(o == null)
+			return false;
+
+		int hash = o.hashCode();
+		int base = block(hash, bits.length / BLOCK_LONGS) * BLOCK_LONGS;
+		int g = spread(hash);
+
+		for(int i = 0; i < numHashes; i++)
+		{
+			int bit = g >>> 23;
+			if((bits[base + (bit >>> 6)] & (1L << bit)) == 0)
+				return false;
+
+			g = next(g);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Clears every bit of the filter.
+	 */
+	public void clear() {
+
+		java.util.Arrays.fill(bits, 0L);
+	}
+
+	/**
+	 * Returns the number of bits in the filter.
+	 * @return The number of bits.
+	 */
+	public long bitSize() {
+
+		return bits.length * 64L;
+	}
+
+	/**
+	 * Returns the number of bits set for each element.
+	 * @return The number of hash functions.
+	 */
+	public int hashFunctions() {
+
+		return numHashes;
+	}
+
+	/**
+	 * Returns the number of elements the filter was sized for.
+	 * @return The expected insertions.
+	 */
+	public long expectedInsertions() {
+
+		return expectedInsertions;
+	}
+
+	/**
+	 * Estimates the current false positive probability from the fraction of bits that are set.
+	 * @return The estimated probability that an absent element is reported as present.
+	 */
+	public double expectedFpp() {
+
+		long set = 0;
+		for(long word : bits)
+			set += Long.bitCount(word);
+
+		return Math.pow((double) set / bitSize(), numHashes);
+	}
+
+	/**
+	 * Computes the number of bits that gives a false positive probability for a number of elements.
+	 * @param expectedInsertions The number of elements expected to be added.
+	 * @param fpp The wanted false positive probability.
+	 * @return The number of bits.
+	 * @throws IllegalArgumentException if the expected insertions are not positive or the probability is not between 0 and 1.
+	 */
+	static long optimalBits(long expectedInsertions, double fpp) {
+
+		if(expectedInsertions <= 0)
+			throw new IllegalArgumentException("The expected insertions must be positive.");
+		if(!(fpp > 0 && fpp < 1))
+			throw new IllegalArgumentException("The false positive probability must be between 0 and 1.");
+
+		return (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+	}
+
+	/**
+	 * Computes the number of hash functions that minimizes the false positive probability for a number of bits and elements.
+	 * @param bits The number of bits or counters.
+	 * @param expectedInsertions The number of elements expected to be added.
+	 * @return The number of hash functions, between 1 and MAXIMUM_HASHES.
+	 */
+	static int optimalHashes(long bits, long expectedInsertions) {
+
+		long k = Math.round((double) bits / expectedInsertions * Math.log(2));
+		return (int) Math.max(1, Math.min(MAXIMUM_HASHES, k));
+	}
+
+	/**
+	 * Computes the power of two number of blocks that holds at least the requested number of bits or counters.
+	 * @param bits The requested number of bits or counters.
+	 * @param perBlock The number of bits or counters in a block.
+	 * @return The number of blocks, at most MAXIMUM_BLOCKS.
+	 */
+	static int blocksFor(long bits, int perBlock) {
+
+		long blocks = (bits + perBlock - 1) / perBlock;
+		return HashMap.tableSizeFor((int) Math.min(MAXIMUM_BLOCKS, blocks));
+	}
+
+	/**
+	 * Computes the power of two number of 512-bit blocks that holds at least the requested number of bits.
+	 * @param bits The requested number of bits.
+	 * @return The number of blocks.
+	 */
+	private static int blocksFor(long bits) {
+
+		return blocksFor(bits, BLOCK_LONGS * 64);
+	}
+
+	/**
+	 * Picks the block of an element from its hash code.
+	 * @param hash The hash code of the element.
+	 * @param numBlocks The number of blocks, which must be a power of two.
+	 * @return The index of the block.
+	 */
+	static int block(int hash, int numBlocks) {
+
+		return HashMap.indexFor(HashMixer.MURMUR3.mix(hash, 0), numBlocks);
+	}
+
+	/**
+	 * Derives the first position inside the block from the hash code, independently of the block index.
+	 * @param hash The hash code of the element.
+	 * @return The first value of the position sequence.
+	 */
+	static int spread(int hash) {
+
+		return HashMixer.MURMUR3.mix(hash, 0x9e3779b9);
+	}
+
+	/**
+	 * Steps the position sequence. Multiplying by an odd constant and rotating mixes the low bits back into the top bits that pick the position.
+	 * @param g The current value of the sequence.
+	 * @return The next value.
+	 */
+	static int next(int g) {
+
+		return Integer.rotateLeft(g * 0x2545f491, 11);
+	}
+}
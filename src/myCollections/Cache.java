@@ -0,0 +1,692 @@
+package myCollections;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Bounded cache built on HashMap that evicts entries once their total weight passes a maximum.
+ * Every operation does a constant amount of bookkeeping: a map lookup plus a few linked list moves.
+ * Two policies are available. LRU evicts the least recently used entry. W-TinyLFU keeps a small LRU window for new entries,
+ * and only lets an entry leaving the window into the main area if it has been used more often than the entry it would push out.
+ * @author Renato Scudere
+ *
+ * @param <K> The generic type for the key.
+ * @param <V> The generic type for the value.
+ */
+public class Cache<K,V> {
+
+	/**
+	 * The eviction policies the cache can use.
+	 */
+	public enum Policy {
+
+		/**
+		 * Evicts the least recently used entry.
+		 */
+		LRU,
+
+		/**
+		 * Admits new entries through a small LRU window, then keeps the main area as a segmented LRU guarded by a frequency sketch.
+		 */
+		W_TINY_LFU
+	}
+
+	/**
+	 * Marks an entry in the window, where new entries start.
+	 */
+	private static final int WINDOW = 0;
+
+	/**
+	 * Marks an entry in probation, the part of the main area for entries used once since leaving the window.
+	 */
+	private static final int PROBATION = 1;
+
+	/**
+	 * Marks an entry in the protected area, the part of the main area for entries used again while in probation.
+	 */
+	private static final int PROTECTED = 2;
+
+	/**
+	 * Class that stores one cached entry and its links in the access order list of its area.
+	 * @param <K> The generic type for the key.
+	 * @param <V> The generic type for the value.
+	 */
+	private static class Node<K,V> {
+
+		/**
+		 * Stores the key of the entry.
+		 */
+		K key;
+
+		/**
+		 * Stores the value of the entry.
+		 */
+		V value;
+
+		/**
+		 * Stores the weight of the entry.
+		 */
+		int weight;
+
+		/**
+		 * Stores the area the entry is in.
+		 */
+		int area;
+
+		/**
+		 * The entry used just before this one in its list.
+		 */
+		Node<K,V> prev;
+
+		/**
+		 * The entry used just after this one in its list.
+		 */
+		Node<K,V> next;
+
+		/**
+		 * Constructor that initializes the entry.
+		 * @param key The key of the entry.
+		 * @param value The value of the entry.
+		 * @param weight The weight of the entry.
+		 */
+		Node(K key, V value, int weight) { this.key = key; this.value = value; this.weight = weight; }
+	}
+
+	/**
+	 * Circular doubly linked list of entries in access order. The first entry is the least recently used.
+	 * @param <K> The generic type for the key.
+	 * @param <V> The generic type for the value.
+	 */
+	private static class AccessOrder<K,V> {
+
+		/**
+		 * Sentinel node whose next is the first entry and whose prev is the last entry.
+		 */
+		private final Node<K,V> head = new Node<>(null, null, 0);
+
+		/**
+		 * The total weight of the entries in the list.
+		 */
+		long weight = 0;
+
+		/**
+		 * Constructor that creates an empty list.
+		 */
+		AccessOrder() { head.prev = head; head.next = head; }
+
+		/**
+		 * Returns the least recently used entry.
+		 * @return The first entry, or null if the list is empty.
+		 */
+		Node<K,V> first() { return head.next == head ? null : head.next; }
+
+		/**
+		 * Adds an entry as the most recently used.
+		 * @param node The entry being added.
+		 */
+		void addLast(Node<K,V> node) {
+
+			node.prev = head.prev;
+			node.next = head;
+			head.prev.next = node;
+			head.prev = node;
+			weight += node.weight;
+		}
+
+		/**
+		 * Unlinks an entry from the list.
+		 * @param node The entry being removed.
+		 */
+		void remove(Node<K,V> node) {
+
+			node.prev.next = node.next;
+			node.next.prev = node.prev;
+			node.prev = null;
+			node.next = null;
+			weight -= node.weight;
+		}
+
+		/**
+		 * Empties the list without touching the entries.
+		 */
+		void clear() {
+
+			head.prev = head;
+			head.next = head;
+			weight = 0;
+		}
+
+		/**
+		 * Moves an entry to the most recently used end.
+		 * @param node The entry being moved.
+		 */
+		void moveToLast(Node<K,V> node) {
+
+			remove(node);
+			addLast(node);
+		}
+	}
+
+	/**
+	 * Count-min sketch with four 4-bit counters per key, used to estimate how often a key has been used recently.
+	 * Every counter is halved once enough samples have been added, so old popularity fades.
+	 * The sketch starts small and grows with the number of entries, since the maximum weight says nothing about how many entries fit.
+	 */
+	private static class FrequencySketch {
+
+		/**
+		 * The largest number of longs in the table.
+		 */
+		private static final int MAXIMUM_LENGTH = 1 << 24;
+
+		/**
+		 * The counters, sixteen 4-bit counters per long.
+		 */
+		private long[] table;
+
+		/**
+		 * The number of increments since the counters were last halved.
+		 */
+		private int samples = 0;
+
+		/**
+		 * The number of increments that triggers halving the counters.
+		 */
+		private int sampleLimit;
+
+		/**
+		 * Constructor that creates the smallest sketch, which ensureCapacity grows as entries are added.
+		 */
+		FrequencySketch() {
+
+			allocate(16);
+		}
+
+		/**
+		 * Grows the sketch to have at least one long per entry.
+		 * The counters cannot be moved to a new table, so the history is dropped, as it is in Caffeine.
+		 * Since the table at least doubles each time, this happens a logarithmic number of times.
+		 * @param entries The number of entries the cache holds.
+		 */
+		void ensureCapacity(int entries) {
+
+			if(entries <= table.length || table.length >= MAXIMUM_LENGTH)
+				return;
+
+			allocate(HashMap.tableSizeFor(Math.min(MAXIMUM_LENGTH, entries)));
+		}
+
+		/**
+		 * Creates a new empty table.
+		 * @param length The number of longs in the table, which must be a power of two.
+		 */
+		private void allocate(int length) {
+
+			table = new long[length];
+			sampleLimit = 10 * length;
+			samples = 0;
+		}
+
+		/**
+		 * Estimates how often a key has been used.
+		 * @param key The key being estimated.
+		 * @return The smallest of the key's four counters, from 0 to 15.
+		 */
+		int frequency(Object key) {
+
+			int hash = HashMixer.MURMUR3.mix(key.hashCode(), 0);
+			int min = 15;
+
+			for(int i = 0; i < 4; i++)
+			{
+				int h = HashMixer.MURMUR3.mix(hash, i);
+				int shift = (h >>> 28) << 2;
+				min = Math.min(min, (int) ((table[h & (table.length - 1)] >>> shift) & 0xf));
+			}
+
+			return min;
+		}
+
+		/**
+		 * Records one use of a key, halving every counter when the sample limit is reached.
+		 * @param key The key that was used.
+		 */
+		void increment(Object key) {
+
+			int hash = HashMixer.MURMUR3.mix(key.hashCode(), 0);
+
+			for(int i = 0; i < 4; i++)
+			{
+				int h = HashMixer.MURMUR3.mix(hash, i);
+				int index = h & (table.length - 1);
+				int shift = (h >>> 28) << 2;
+
+				//Counters saturate at 15.
+				if(((table[index] >>> shift) & 0xf) != 0xf)
+					table[index] += 1L << shift;
+			}
+
+			if(++samples >= sampleLimit)
+			{
+				//Halves every counter at once by shifting and masking off the bit that crossed into the next counter.
+				for(int i = 0; i < table.length; i++)
+					table[i] = (table[i] >>> 1) & 0x7777777777777777L;
+
+				samples /= 2;
+			}
+		}
+	}
+
+	/**
+	 * Maps each key to its entry.
+	 */
+	private final HashMap<K, Node<K,V>> data;
+
+	/**
+	 * The eviction policy used by the cache.
+	 */
+	private final Policy policy;
+
+	/**
+	 * Computes the weight of an entry.
+	 */
+	private final ToIntBiFunction<? super K, ? super V> weigher;
+
+	/**
+	 * The largest total weight the cache may hold.
+	 */
+	private final long maximumWeight;
+
+	/**
+	 * The largest weight of the window. With LRU the window is the whole cache.
+	 */
+	private final long windowMaximum;
+
+	/**
+	 * The largest weight of the protected area.
+	 */
+	private final long protectedMaximum;
+
+	/**
+	 * The access order of the window. With LRU this holds every entry.
+	 */
+	private final AccessOrder<K,V> window = new AccessOrder<>();
+
+	/**
+	 * The access order of the probation area.
+	 */
+	private final AccessOrder<K,V> probation = new AccessOrder<>();
+
+	/**
+	 * The access order of the protected area.
+	 */
+	private final AccessOrder<K,V> protectedArea = new AccessOrder<>();
+
+	/**
+	 * The frequency sketch used by W-TinyLFU, or null with LRU.
+	 */
+	private final FrequencySketch sketch;
+
+	/**
+	 * The number of lookups that found their key.
+	 */
+	private long hitCount = 0;
+
+	/**
+	 * The number of lookups that did not find their key.
+	 */
+	private long missCount = 0;
+
+	/**
+	 * The number of entries evicted to stay under the maximum weight.
+	 */
+	private long evictionCount = 0;
+
+	/**
+	 * Constructor creates a W-TinyLFU cache that holds up to the given number of entries.
+	 * @param maximumSize The largest number of entries the cache may hold.
+	 */
+	public Cache(long maximumSize) {
+
+		this(maximumSize, Policy.W_TINY_LFU, (k, v) -> 1);
+	}
+
+	/**
+	 * Constructor creates a cache with the given eviction policy and weigher.
+	 * @param maximumWeight The largest total weight the cache may hold.
+	 * @param policy The eviction policy.
+	 * @param weigher Computes the weight of an entry, which must not be negative.
+	 * @throws IllegalArgumentException if the maximum weight is negative.
+	 * @throws NullPointerException if the policy or weigher is null.
+	 */
+	public Cache(long maximumWeight, Policy policy, ToIntBiFunction<? super K, ? super V> weigher) {
+
+		if(maximumWeight < 0)
+			throw new IllegalArgumentException("The maximum weight cannot be negative.");
+		if(policy == null || weigher == null)
+			throw new NullPointerException("The policy and weigher cannot be null.");
+
+		this.maximumWeight = maximumWeight;
+		this.policy = policy;
+		this.weigher = weigher;
+		data = new HashMap<>(16);
+
+		if(policy == Policy.LRU)
+		{
+			windowMaximum = maximumWeight;
+			protectedMaximum = 0;
+			sketch = null;
+		}
+		else
+		{
+			//1% of the weight goes to the window and 80% of the rest is protected.
+			windowMaximum = Math.max(1, maximumWeight / 100);
+			protectedMaximum = (long) ((maximumWeight - windowMaximum) * 0.8);
+			sketch = new FrequencySketch();
+		}
+	}
+
+	/**
+	 * Returns the value of a key and records the access.
+	 * @param key The key being looked up.
+	 * @return The cached value, or null if the key is not in the cache.
+	 */
+	public V get(Object key) {
+
+		if(key == null)
+			return null;
+
+		if(sketch != null)
+			sketch.increment(key);
+
+		Node<K,V> node = data.get(key);
+		if(node == null)
+		{
+			missCount++;
+			return null;
+		}
+
+		hitCount++;
+		onAccess(node);
+		return node.value;
+	}
+
+	/**
+	 * Adds or replaces an entry, then evicts entries until the cache is back under its maximum weight.
+	 * @param key The key being cached.
+	 * @param value The value being cached.
+	 * @return The previous value of the key, or null if it was not in the cache.
+	 * @throws NullPointerException if the key or value is null.
+	 * @throws IllegalArgumentException if the weigher returns a negative weight.
+	 */
+	public V put(K key, V value) {
+
+		if(key == null || value == null)
+			throw new NullPointerException("The key and value cannot be null.");
+
+		int weight = weigher.applyAsInt(key, value);
+		if(weight < 0)
+			throw new IllegalArgumentException("The weight cannot be negative.");
+
+		if(sketch != null)
+			sketch.increment(key);
+
+		Node<K,V> node = data.get(key);
+		if(node != null)
+		{
+			V oldVal = node.value;
+
+			//The node is unlinked while its weight changes so that its list keeps the right total.
+			AccessOrder<K,V> list = listOf(node);
+			list.remove(node);
+			node.value = value;
+			node.weight = weight;
+			list.addLast(node);
+
+			onAccess(node);
+			evict();
+			return oldVal;
+		}
+
+		node = new Node<>(key, value, weight);
+		node.area = WINDOW;
+		window.addLast(node);
+		data.put(key, node);
+
+		if(sketch != null)
+			sketch.ensureCapacity(data.size());
+
+		evict();
+		return null;
+	}
+
+	/**
+	 * Removes an entry from the cache. This is not counted as an eviction.
+	 * @param key The key being removed.
+	 * @return The removed value, or null if the key was not in the cache.
+	 */
+	public V remove(Object key) {
+
+		Node<K,V> node = data.remove(key);
+		if(node == null)
+			return null;
+
+		listOf(node).remove(node);
+		return node.value;
+	}
+
+	/**
+	 * Removes every entry from the cache. The statistics and frequency history are kept.
+	 */
+	public void clear() {
+
+		window.clear();
+		probation.clear();
+		protectedArea.clear();
+		data.clear();
+	}
+
+	/**
+	 * Returns the number of entries in the cache.
+	 * @return The number of entries.
+	 */
+	public int size() {
+
+		return data.size();
+	}
+
+	/**
+	 * Returns the total weight of the entries in the cache.
+	 * @return The weighted size.
+	 */
+	public long weightedSize() {
+
+		return window.weight + probation.weight + protectedArea.weight;
+	}
+
+	/**
+	 * Returns the largest total weight the cache may hold.
+	 * @return The maximum weight.
+	 */
+	public long maximumWeight() {
+
+		return maximumWeight;
+	}
+
+	/**
+	 * Returns the eviction policy used by the cache.
+	 * @return The policy.
+	 */
+	public Policy policy() {
+
+		return policy;
+	}
+
+	/**
+	 * Returns the number of lookups that found their key.
+	 * @return The hit count.
+	 */
+	public long hitCount() {
+
+		return hitCount;
+	}
+
+	/**
+	 * Returns the number of lookups that did not find their key.
+	 * @return The miss count.
+	 */
+	public long missCount() {
+
+		return missCount;
+	}
+
+	/**
+	 * Returns the number of entries evicted to stay under the maximum weight.
+	 * @return The eviction count.
+	 */
+	public long evictionCount() {
+
+		return evictionCount;
+	}
+
+	/**
+	 * Returns the fraction of lookups that found their key.
+	 * @return The hit rate, or 1 if there have been no lookups.
+	 */
+	public double hitRate() {
+
+		long requests = hitCount + missCount;
+		return requests == 0 ? 1.0 : (double) hitCount / requests;
+	}
+
+	/**
+	 * Records an access to an entry by moving it in its list.
+	 * With W-TinyLFU an entry in probation is promoted to the protected area, which may push the oldest protected entry back to probation.
+	 * @param node The entry that was accessed.
+	 */
+	private void onAccess(Node<K,V> node) {
+
+		if(node.area == WINDOW)
+			window.moveToLast(node);
+		else if(node.area == PROTECTED)
+			protectedArea.moveToLast(node);
+		else
+		{
+			probation.remove(node);
+			node.area = PROTECTED;
+			protectedArea.addLast(node);
+
+			while(protectedArea.weight > protectedMaximum && protectedArea.first() != node)
+			{
+				Node<K,V> demoted = protectedArea.first();
+				protectedArea.remove(demoted);
+				demoted.area = PROBATION;
+				probation.addLast(demoted);
+			}
+		}
+	}
+
+	/**
+	 * Evicts entries until the cache is back under its maximum weight.
+	 * With LRU the least recently used entries go first.
+	 * With W-TinyLFU entries leaving the window compete with the entry at the front of probation, and the less frequently used of the two is evicted.
+	 */
+	private void evict() {
+
+		if(policy == Policy.LRU)
+		{
+			while(window.weight > maximumWeight)
+				evict(window.first());
+
+			return;
+		}
+
+		while(window.weight > windowMaximum)
+		{
+			Node<K,V> candidate = window.first();
+			window.remove(candidate);
+			admit(candidate);
+		}
+
+		//A heavy update in the main area can still leave the cache over its maximum, so the oldest entries go.
+		while(weightedSize() > maximumWeight)
+		{
+			Node<K,V> victim = probation.first() != null ? probation.first() : protectedArea.first();
+			if(victim == null)
+				victim = window.first();
+
+			evict(victim);
+		}
+	}
+
+	/**
+	 * Lets an entry leaving the window into probation if the main area has room or if it is used more often than the first entry it would push out.
+	 * @param candidate The entry leaving the window, already unlinked from it.
+	 */
+	private void admit(Node<K,V> candidate) {
+
+		long mainMaximum = maximumWeight - windowMaximum;
+
+		//An entry heavier than the whole main area could never fit, so nothing is pushed out for it.
+		if(candidate.weight > mainMaximum)
+		{
+			data.remove(candidate.key);
+			evictionCount++;
+			return;
+		}
+
+		//Admission is decided once, against the first entry that would be pushed out, before anything is evicted.
+		if(probation.weight + protectedArea.weight + candidate.weight > mainMaximum)
+		{
+			Node<K,V> victim = probation.first() != null ? probation.first() : protectedArea.first();
+
+			if(sketch.frequency(candidate.key) <= sketch.frequency(victim.key))
+			{
+				//The candidate loses, so it is evicted without ever reaching the main area.
+				data.remove(candidate.key);
+				evictionCount++;
+				return;
+			}
+
+			//The candidate won, so as many entries as it needs room for are evicted.
+			while(probation.weight + protectedArea.weight + candidate.weight > mainMaximum)
+				evict(probation.first() != null ? probation.first() : protectedArea.first());
+		}
+
+		candidate.area = PROBATION;
+		probation.addLast(candidate);
+	}
+
+	/**
+	 * Removes an entry from its list and from the map, and counts it as an eviction.
+	 * @param node The entry being evicted.
+	 */
+	private void evict(Node<K,V> node) {
+
+		listOf(node).remove(node);
+		data.remove(node.key);
+		evictionCount++;
+	}
+
+	/**
+	 * Returns the list of the area an entry is in.
+	 * @param node The entry.
+	 * @return The list holding the entry.
+	 */
+	private AccessOrder<K,V> listOf(Node<K,V> node) {
+
+		if(node.area == WINDOW)
+			return window;
+		else if(node.area == PROBATION)
+			return probation;
+		else
+			return protectedArea;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String toString() {
+
+		return "Cache[policy=" + policy + ", size=" + size() + ", weight=" + weightedSize() + "/" + maximumWeight
+				+ ", hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount + "]";
+	}
+}
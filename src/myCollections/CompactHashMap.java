@@ -0,0 +1,681 @@
+package myCollections;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import java.util.Collection; //for returning in the values() function only
+
+/**
+ * Insertion-ordered map in the style of the compact dict of CPython.
+ * The pairs are appended to dense parallel arrays of keys, values and hash codes, and a separate sparse index table holds only
+ * the position of each pair in those arrays. The index uses shorts while the dense arrays are small enough and ints afterward.
+ * Iteration walks the dense arrays, so it costs time proportional to the size of the map and follows insertion order.
+ * @author Renato Scudere
+ *
+ * @param <K> The generic type for the key.
+ * @param <V> The generic type for the value.
+ */
+public class CompactHashMap<K,V> implements Map<K,V> {
+
+	/**
+	 * Index entry of a slot that has never held a position. Positions are stored plus one so that 0 can mean empty.
+	 */
+	private static final int EMPTY = 0;
+
+	/**
+	 * Index entry of a slot whose pair was removed. Deleted slots keep the probing sequence intact for later lookups.
+	 */
+	private static final int DELETED = -1;
+
+	/**
+	 * The largest position plus one that fits in a short index entry.
+	 */
+	private static final int SHORT_LIMIT = Short.MAX_VALUE;
+
+	/**
+	 * The keys in insertion order. A null key marks a removed pair.
+	 */
+	private Object[] keys;
+
+	/**
+	 * The values, stored at the same position as their key.
+	 */
+	private Object[] values;
+
+	/**
+	 * The mixed hash codes of the keys, stored at the same position as their key.
+	 */
+	private int[] hashes;
+
+	/**
+	 * The index table while the dense arrays are small enough for short entries, or null otherwise.
+	 */
+	private short[] shortIndex;
+
+	/**
+	 * The index table once the dense arrays are too large for short entries, or null otherwise.
+	 */
+	private int[] intIndex;
+
+	/**
+	 * The number of positions of the dense arrays used so far, including removed pairs.
+	 */
+	private int used = 0;
+
+	/**
+	 * The number of pairs in the map.
+	 */
+	private int numElements = 0;
+
+	/**
+	 * The original size of the index table.
+	 */
+	private final int tableSize;
+
+	/**
+	 * Counts the structural changes to the map so that iterators over the views can detect them.
+	 */
+	private int modCount = 0;
+
+	/**
+	 * Constructor creates an index table with the smallest power of two larger than the requested size, and dense arrays
+	 * for two thirds of that many pairs, the largest load the index is allowed.
+	 * @param size The requested size of the index table.
+	 */
+	public CompactHashMap(int size) {
+
+		tableSize = HashMap.tableSizeFor(Math.max(size, 8));
+		allocate(tableSize);
+	}
+
+	/**
+	 * Creates new empty dense arrays and an index table of the given length.
+	 * @param length The length of the new index table, which must be a power of two.
+	 */
+	private void allocate(int length) {
+
+		int dense = denseCapacity(length);
+		keys = new Object[dense];
+		values = new Object[dense];
+		hashes = new int[dense];
+		allocateIndex(length);
+	}
+
+	/**
+	 * Creates a new empty index table of the given length, using shorts if every position of the dense arrays fits in one.
+	 * @param length The length of the new index table, which must be a power of two.
+	 */
+	private void allocateIndex(int length) {
+
+		if(denseCapacity(length) < SHORT_LIMIT)
+		{
+			shortIndex = new short[length];
+			intIndex = null;
+		}
+		else
+		{
+			intIndex = new int[length];
+			shortIndex = null;
+		}
+	}
+
+	/**
+	 * Returns the number of pairs the dense arrays hold for an index table of the given length.
+	 * @param length The length of the index table.
+	 * @return Two thirds of the length.
+	 */
+	private static int denseCapacity(int length) {
+
+		return (int) (length * 2L / 3);
+	}
+
+	/**
+	 * Reads an entry of the index table.
+	 * @param slot The slot being read.
+	 * @return EMPTY, DELETED, or the position of a pair plus one.
+	 */
+	private int indexAt(int slot) {
+
+		return shortIndex != null ? shortIndex[slot] : intIndex[slot];
+	}
+
+	/**
+	 * Writes an entry of the index table.
+	 * @param slot The slot being written.
+	 * @param entry EMPTY, DELETED, or the position of a pair plus one.
+	 */
+	private void setIndex(int slot, int entry) {
+
+		if(shortIndex != null)
+			shortIndex[slot] = (short) entry;
+		else
+			intIndex[slot] = entry;
+	}
+
+	/**
+	 * Returns the number of slots in the index table.
+	 * @return The length of the index table.
+	 */
+	public int capacity() {
+
+		return shortIndex != null ? shortIndex.length : intIndex.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void clear() {
+
+		allocate(tableSize);
+		used = 0;
+		numElements = 0;
+		modCount++;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isEmpty() {
+
+		return numElements == 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int size() {
+
+		return numElements;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		//Makes sure the key cannot be null.
+		if(key == null)
+			return null;
+
+		int slot = find(key, hash(key));
+		return slot < 0 ? null : (V) values[indexAt(slot) - 1];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean containsKey(Object key) {
+
+		return key != null && find(key, hash(key)) >= 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * A new key is appended after every pair already in the map. Updating the value of a key keeps its place in the order.
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(K key, V value) {
+		if(key == null)
+			throw new NullPointerException("The key cannot be null.");
+
+		int hash = hash(key);
+		int slot = find(key, hash);
+
+		if(slot >= 0)
+		{
+			int pos = indexAt(slot) - 1;
+			V oldVal = (V) values[pos];
+			values[pos] = value;
+			return oldVal;
+		}
+
+		//The dense arrays are full, so removed pairs are squeezed out and the index grows if the map is still too full.
+		if(used == keys.length)
+			resize(numElements + 1 > denseCapacity(capacity()) / 2 ? capacity() * 2 : capacity());
+
+		keys[used] = key;
+		values[used] = value;
+		hashes[used] = hash;
+		setIndex(findOpen(hash), ++used);
+		numElements++;
+		modCount++;
+
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The pair's position in the dense arrays is left empty until the next resize packs the arrays.
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(Object key) {
+		//Makes sure the key cannot be null.
+		if(key == null)
+			return null;
+
+		int slot = find(key, hash(key));
+		if(slot < 0)
+			return null;
+
+		return (V) removeAt(slot, indexAt(slot) - 1);
+	}
+
+	/**
+	 * Helper method for remove and the iterators that removes the pair at a position.
+	 * @param slot The index slot pointing to the pair.
+	 * @param pos The position of the pair in the dense arrays.
+	 * @return The value of the removed pair.
+	 */
+	private Object removeAt(int slot, int pos) {
+
+		Object oldVal = values[pos];
+		setIndex(slot, DELETED);
+		keys[pos] = null;
+		values[pos] = null;
+		numElements--;
+		modCount++;
+
+		return oldVal;
+	}
+
+	/**
+	 * Packs the dense arrays so the live pairs keep their order without gaps, and rebuilds the index table at the requested length.
+	 * @param length The length of the new index table, which must be a power of two.
+	 */
+	private void resize(int length) {
+
+		Object[] oldKeys = keys;
+		Object[] oldValues = values;
+		int[] oldHashes = hashes;
+		int oldUsed = used;
+
+		allocate(length);
+		used = 0;
+
+		for(int i = 0; i < oldUsed; i++)
+		{
+			if(oldKeys[i] == null)
+				continue;
+
+			keys[used] = oldKeys[i];
+			values[used] = oldValues[i];
+			hashes[used] = oldHashes[i];
+			setIndex(findOpen(oldHashes[i]), ++used);
+		}
+
+		modCount++;
+	}
+
+	/**
+	 * Helper method that finds the first open slot of the index table in the probing sequence of a hash.
+	 * @param hash The mixed hash code of the key.
+	 * @return The index of the first empty or deleted slot.
+	 */
+	private int findOpen(int hash) {
+
+		int mask = capacity() - 1;
+		int index = HashMap.indexFor(hash, capacity());
+		int check = index;
+
+		for(int i = 1; indexAt(check) > 0; i++)
+			check = HashMap.ProbeStrategy.TRIANGULAR.next(index, check, i, mask);
+
+		return check;
+	}
+
+	/**
+	 * Helper method that locates the index slot of a key.
+	 * @param key The key being looked for.
+	 * @param hash The mixed hash code of the key.
+	 * @return The index slot pointing to the key, or -1 if it is not in the map.
+	 */
+	private int find(Object key, int hash) {
+
+		int mask = capacity() - 1;
+		int index = HashMap.indexFor(hash, capacity());
+		int check = index;
+
+		for(int i = 1; i <= mask + 1; i++)
+		{
+			int entry = indexAt(check);
+			if(entry == EMPTY)
+				return -1;
+
+			//The cached hash code rejects most pairs before equals is called.
+			if(entry != DELETED && hashes[entry - 1] == hash && key.equals(keys[entry - 1]))
+				return check;
+
+			check = HashMap.ProbeStrategy.TRIANGULAR.next(index, check, i, mask);
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Mixes the hash code of a key so that weak low bits still spread over the index table.
+	 * @param key The key being hashed.
+	 * @return The mixed hash code.
+	 */
+	private static int hash(Object key) {
+
+		return HashMixer.MURMUR3.mix(key.hashCode(), 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean containsValue(Object value) {
+
+		for(int i = 0; i < used; i++)
+		{
+			if(keys[i] != null && Objects.equals(values[i], value))
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void	putAll(Map<? extends K,? extends V> m) {
+
+		//Grows the index once for the worst case where none of the keys are in this map yet.
+		int length = capacity();
+		while(length < HashMap.MAXIMUM_CAPACITY && denseCapacity(length) < (long) numElements + m.size())
+			length <<= 1;
+
+		if(length != capacity())
+			resize(length);
+
+		for(Map.Entry<? extends K,? extends V> e : m.entrySet())
+			put(e.getKey(), e.getValue());
+	}
+
+	/**
+	 * Finds the position of the first live pair at or after a position.
+	 * @param pos The position to start from.
+	 * @return The position of the next live pair, or used if there is none.
+	 */
+	private int nextLive(int pos) {
+
+		while(pos < used && keys[pos] == null)
+			pos++;
+
+		return pos;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The keys are returned in insertion order.
+	 */
+	public Set<K> keySet() {
+
+		return new AbstractSet<K>() {
+			@SuppressWarnings("unchecked")
+			public Iterator<K> iterator() {
+				return new DenseIterator<K>() {
+					public K next() { return (K) keys[nextPosition()]; }
+				};
+			}
+			public int size() { return numElements; }
+			public boolean contains(Object o) { return containsKey(o); }
+			public boolean remove(Object o) {
+
+				int before = numElements;
+				CompactHashMap.this.remove(o);
+				return numElements != before;
+			}
+			public void clear() { CompactHashMap.this.clear(); }
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The values are returned in the insertion order of their keys.
+	 */
+	public Collection<V> values() {
+
+		return new AbstractCollection<V>() {
+			@SuppressWarnings("unchecked")
+			public Iterator<V> iterator() {
+				return new DenseIterator<V>() {
+					public V next() { return (V) values[nextPosition()]; }
+				};
+			}
+			public int size() { return numElements; }
+			public boolean contains(Object o) { return containsValue(o); }
+			public void clear() { CompactHashMap.this.clear(); }
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The pairs are returned in insertion order, and setting the value of a returned entry changes the map.
+	 */
+	public Set<Map.Entry<K,V>> entrySet() {
+
+		return new AbstractSet<Map.Entry<K,V>>() {
+			public Iterator<Map.Entry<K,V>> iterator() {
+				return new DenseIterator<Map.Entry<K,V>>() {
+					public Map.Entry<K,V> next() { return new DenseEntry(nextPosition()); }
+				};
+			}
+			public int size() { return numElements; }
+			public boolean contains(Object o) {
+
+				if(!(o instanceof Map.Entry))
+					return false;
+
+				Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+				return containsKey(e.getKey()) && Objects.equals(get(e.getKey()), e.getValue());
+			}
+			public void clear() { CompactHashMap.this.clear(); }
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean equals(Object o) {
+
+		if(o == this)
+			return true;
+		if(!(o instanceof Map))
+			return false;
+
+		Map<?,?> m = (Map<?,?>) o;
+		if(m.size() != numElements)
+			return false;
+
+		for(Map.Entry<K,V> e : entrySet())
+		{
+			V value = e.getValue();
+
+			if(value == null ? !(m.get(e.getKey()) == null && m.containsKey(e.getKey())) : !value.equals(m.get(e.getKey())))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int hashCode() {
+
+		int h = 0;
+		for(Map.Entry<K,V> e : entrySet())
+			h += e.hashCode();
+
+		return h;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The pairs are listed in insertion order.
+	 */
+	public String toString() {
+
+		StringBuilder s = new StringBuilder("{");
+		for(int i = 0; i < used; i++)
+		{
+			if(keys[i] != null)
+				s.append(keys[i]).append("=").append(values[i]).append(", ");
+		}
+
+		if(numElements > 0)
+			s.setLength(s.length() - 2);
+		return s.append("}").toString();
+	}
+
+	/**
+	 * Entry backed by a position of the dense arrays, so setting its value changes the map.
+	 */
+	private class DenseEntry implements Map.Entry<K,V> {
+
+		/**
+		 * The position of the pair in the dense arrays.
+		 */
+		private final int pos;
+
+		/**
+		 * The key of the pair, kept so the entry still reports it after the pair is removed or moved.
+		 */
+		private final K key;
+
+		/**
+		 * The mod count when the entry was created. A resize may move the pair, after which the entry is no longer backed by the map.
+		 */
+		private final int expectedModCount;
+
+		/**
+		 * Constructor that creates an entry for a position.
+		 * @param pos The position of the pair.
+		 */
+		@SuppressWarnings("unchecked")
+		DenseEntry(int pos) {
+
+			this.pos = pos;
+			key = (K) keys[pos];
+			expectedModCount = modCount;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public K getKey() { return key; }
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("unchecked")
+		public V getValue() { return modCount == expectedModCount ? (V) values[pos] : get(key); }
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("unchecked")
+		public V setValue(V value) {
+
+			if(modCount != expectedModCount)
+				return put(key, value);
+
+			V oldVal = (V) values[pos];
+			values[pos] = value;
+			return oldVal;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean equals(Object o) {
+
+			if(!(o instanceof Map.Entry))
+				return false;
+
+			Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+			return Objects.equals(key, e.getKey()) && Objects.equals(getValue(), e.getValue());
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public int hashCode() { return Objects.hashCode(key) ^ Objects.hashCode(getValue()); }
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public String toString() { return key + "=" + getValue(); }
+	}
+
+	/**
+	 * Iterator over the positions of the live pairs in insertion order.
+	 * @param <E> The type of element returned by the iterator.
+	 */
+	private abstract class DenseIterator<E> implements Iterator<E> {
+
+		/**
+		 * The position of the next live pair, or used if there is none.
+		 */
+		private int next = nextLive(0);
+
+		/**
+		 * The position returned by the last call to nextPosition, or -1 if it was removed.
+		 */
+		private int current = -1;
+
+		/**
+		 * The mod count the map must still have for the iterator to be valid.
+		 */
+		private int expectedModCount = modCount;
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean hasNext() {
+
+			return next < used;
+		}
+
+		/**
+		 * Returns the position of the next live pair.
+		 * @return The position in the dense arrays.
+		 * @throws NoSuchElementException if there are no more pairs.
+		 * @throws ConcurrentModificationException if the map was changed other than through this iterator.
+		 */
+		int nextPosition() {
+
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if(next >= used)
+				throw new NoSuchElementException();
+
+			current = next;
+			next = nextLive(next + 1);
+			return current;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * Removing only empties the position, so the dense arrays being walked never move.
+		 */
+		public void remove() {
+
+			if(current < 0)
+				throw new IllegalStateException();
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+
+			removeAt(find(keys[current], hashes[current]), current);
+			current = -1;
+			expectedModCount = modCount;
+		}
+	}
+}
@@ -0,0 +1,863 @@
+package myCollections;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import java.util.Collection; //for returning in the values() function only
+
+/**
+ * Thread-safe map split into segments, each of which is an open-addressing table like the one in HashMap.
+ * Reads never lock. Writes lock only the segment the key hashes to, and each segment grows on its own.
+ * @author Renato Scudere
+ *
+ * @param <K> The generic type for the key.
+ * @param <V> The generic type for the value.
+ */
+public class ConcurrentHashMap<K,V> implements ConcurrentMap<K,V> {
+
+	/**
+	 * Class that stores one key/value pair. The key never changes once the node is published, and the value is volatile so it can be replaced in place.
+	 * @param <K> The generic type for the key.
+	 * @param <V> The generic type for the value.
+	 */
+	private static class Node<K,V> {
+
+		/**
+		 * Stores the key in the node.
+		 */
+		final K key;
+
+		/**
+		 * Stores the mixed hash code of the key.
+		 */
+		final int hash;
+
+		/**
+		 * Stores the value in the node.
+		 */
+		volatile V value;
+
+		/**
+		 * Constructor that initializes the node.
+		 * @param key The key to be stored in the node.
+		 * @param hash The mixed hash code of the key.
+		 * @param value The value to be stored in the node.
+		 */
+		Node(K key, int hash, V value) { this.key = key; this.hash = hash; this.value = value; }
+	}
+
+	/**
+	 * Marks a slot whose node was removed. Bunnies/tombstones keep the probing sequence intact for readers.
+	 */
+	private static final Node<?,?> TOMBSTONE = new Node<>(null, 0, null);
+
+	/**
+	 * One independently locked and independently resized table.
+	 * @param <K> The generic type for the key.
+	 * @param <V> The generic type for the value.
+	 */
+	@SuppressWarnings("serial")
+	private static class Segment<K,V> extends ReentrantLock {
+
+		/**
+		 * The slots of the segment. Replaced as a whole on resize and published through the volatile write.
+		 */
+		volatile AtomicReferenceArray<Node<K,V>> table;
+
+		/**
+		 * The number of live nodes in the segment. Only changed while holding the lock.
+		 */
+		int count;
+
+		/**
+		 * The number of bunnies/tombstones in the segment. Only changed while holding the lock.
+		 */
+		int tombstones;
+
+		/**
+		 * Constructor that creates an empty segment.
+		 * @param length The number of slots, which must be a power of two.
+		 */
+		Segment(int length) { table = new AtomicReferenceArray<>(length); }
+	}
+
+	/**
+	 * The segments of the map. A key belongs to the segment picked by the high bits of its hash code.
+	 */
+	private final Segment<K,V>[] segments;
+
+	/**
+	 * The number of bits the hash code is shifted right to pick a segment.
+	 */
+	private final int segmentShift;
+
+	/**
+	 * The number of elements in the map, kept in a striped counter so writers on different segments do not contend on it.
+	 */
+	private final LongAdder numElements = new LongAdder();
+
+	/**
+	 * Stores the maximum load a segment can have before it grows.
+	 */
+	private final double maxLoad;
+
+	/**
+	 * Stores the original size of each segment.
+	 */
+	private final int segmentSize;
+
+	/**
+	 * Constructor creates a map with 16 segments that hold at least the requested number of slots together.
+	 * It uses the default max load value of 0.5.
+	 * @param size The requested size for the hash table.
+	 */
+	public ConcurrentHashMap(int size) {
+
+		this(size, 0.5, 16);
+	}
+
+	/**
+	 * Constructor creates a map with the requested number of segments rounded up to a power of two.
+	 * @param size The requested size of the hash table, split across the segments.
+	 * @param maxLoad The max load value that each segment must inhibit.
+	 * @param concurrencyLevel The expected number of threads writing at once.
+	 * @throws IllegalArgumentException if the max load is not between 0 and 1 or the concurrency level is less than 1.
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentHashMap(int size, double maxLoad, int concurrencyLevel) {
+
+		if(!(maxLoad > 0 && maxLoad < 1))
+			throw new IllegalArgumentException("The max load must be between 0 and 1.");
+		if(concurrencyLevel < 1)
+			throw new IllegalArgumentException("The concurrency level must be at least 1.");
+
+		int numSegments = HashMap.tableSizeFor(Math.min(concurrencyLevel, 1 << 16));
+		segmentShift = 32 - Integer.numberOfTrailingZeros(numSegments);
+		segmentSize = HashMap.tableSizeFor(Math.max(2, size / numSegments));
+		this.maxLoad = maxLoad;
+
+		segments = (Segment<K,V>[]) new Segment<?,?>[numSegments];
+		for(int i = 0; i < numSegments; i++)
+			segments[i] = new Segment<>(segmentSize);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int size() {
+
+		long sum = numElements.sum();
+		return sum > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) Math.max(0, sum);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isEmpty() {
+
+		return numElements.sum() <= 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void clear() {
+
+		for(Segment<K,V> seg : segments)
+		{
+			seg.lock();
+			try
+			{
+				numElements.add(-seg.count);
+				seg.table = new AtomicReferenceArray<>(segmentSize);
+				seg.count = 0;
+				seg.tombstones = 0;
+			}
+			finally
+			{
+				seg.unlock();
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Never locks. If the segment was resized during the search, the search is repeated on the new table.
+	 */
+	public V get(Object key) {
+		//Makes sure the key cannot be null.
+		if(key == null)
+			return null;
+
+		Node<K,V> node = findNode(key);
+		return node == null ? null : node.value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean containsKey(Object key) {
+
+		return key != null && findNode(key) != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public V put(K key, V value) {
+
+		return put(key, value, false);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public V putIfAbsent(K key, V value) {
+
+		return put(key, value, true);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public V remove(Object key) {
+		//Makes sure the key cannot be null.
+		if(key == null)
+			return null;
+
+		return remove(key, null, false);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean remove(Object key, Object value) {
+
+		if(key == null || value == null)
+			return false;
+
+		return remove(key, value, true) != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public V replace(K key, V value) {
+
+		if(key == null || value == null)
+			throw new NullPointerException("The key and value cannot be null.");
+
+		int hash = hash(key);
+		Segment<K,V> seg = segmentFor(hash);
+
+		seg.lock();
+		try
+		{
+			Node<K,V> node = lockedFind(seg, key, hash);
+			if(node == null)
+				return null;
+
+			V oldVal = node.value;
+			node.value = value;
+			return oldVal;
+		}
+		finally
+		{
+			seg.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean replace(K key, V oldValue, V newValue) {
+
+		if(key == null || oldValue == null || newValue == null)
+			throw new NullPointerException("The key and values cannot be null.");
+
+		int hash = hash(key);
+		Segment<K,V> seg = segmentFor(hash);
+
+		seg.lock();
+		try
+		{
+			Node<K,V> node = lockedFind(seg, key, hash);
+			if(node == null || !oldValue.equals(node.value))
+				return false;
+
+			node.value = newValue;
+			return true;
+		}
+		finally
+		{
+			seg.unlock();
+		}
+	}
+
+	/**
+	 * Helper method for put and putIfAbsent. Searches for the key and the first reusable slot in one pass while holding the segment lock.
+	 * @param key The key being added or updated.
+	 * @param value The value stored with the key.
+	 * @param onlyIfAbsent True if an existing value must not be replaced.
+	 * @return The previous value of the key, or null if it was not in the map.
+	 */
+	private V put(K key, V value, boolean onlyIfAbsent) {
+
+		//Null values are not allowed, since a lock-free get could not tell them apart from a missing key.
+		if(key == null || value == null)
+			throw new NullPointerException("The key and value cannot be null.");
+
+		int hash = hash(key);
+		Segment<K,V> seg = segmentFor(hash);
+
+		seg.lock();
+		try
+		{
+			AtomicReferenceArray<Node<K,V>> table = seg.table;
+			int length = table.length();
+			int mask = length - 1;
+			int index = hash & mask;
+			int check = index;
+			int open = -1;
+
+			for(int i = 1; i <= length; i++)
+			{
+				Node<K,V> node = table.get(check);
+
+				if(node == null)
+				{
+					if(open < 0)
+						open = check;
+					break;
+				}
+				else if(node == TOMBSTONE)
+				{
+					if(open < 0)
+						open = check;
+				}
+				else if(node.hash == hash && key.equals(node.key))
+				{
+					V oldVal = node.value;
+					if(!onlyIfAbsent)
+						node.value = value;
+					return oldVal;
+				}
+
+				check = HashMap.ProbeStrategy.TRIANGULAR.next(index, check, i, mask);
+			}
+
+			//The triangular sequence visits every slot and the load stays below 1, so an open slot was always found.
+			if(table.get(open) == TOMBSTONE)
+				seg.tombstones--;
+
+			//The node is fully built before the volatile write publishes it to readers.
+			table.set(open, new Node<>(key, hash, value));
+			seg.count++;
+			numElements.increment();
+
+			//Grows the segment if its load is over the max load, or compacts it if bunnies/tombstones make it too full.
+			if((seg.count / (double) length) > maxLoad)
+				resize(seg, length * 2);
+			else if(((seg.count + seg.tombstones) / (double) length) > maxLoad + (1 - maxLoad) / 2)
+				resize(seg, length);
+
+			return null;
+		}
+		finally
+		{
+			seg.unlock();
+		}
+	}
+
+	/**
+	 * Helper method for both remove methods. Replaces the node with a bunny/tombstone while holding the segment lock.
+	 * @param key The key being removed.
+	 * @param value The value the key must have, if matchValue is true.
+	 * @param matchValue True if the key should only be removed when it has the given value.
+	 * @return The removed value, or null if nothing was removed.
+	 */
+	private V remove(Object key, Object value, boolean matchValue) {
+
+		int hash = hash(key);
+		Segment<K,V> seg = segmentFor(hash);
+
+		seg.lock();
+		try
+		{
+			AtomicReferenceArray<Node<K,V>> table = seg.table;
+			int slot = slotOf(table, key, hash);
+			if(slot < 0)
+				return null;
+
+			Node<K,V> node = table.get(slot);
+			if(matchValue && !value.equals(node.value))
+				return null;
+
+			table.set(slot, tombstone());
+			seg.count--;
+			seg.tombstones++;
+			numElements.decrement();
+
+			return node.value;
+		}
+		finally
+		{
+			seg.unlock();
+		}
+	}
+
+	/**
+	 * Moves every live node of a segment into a new table and publishes it with one volatile write.
+	 * Readers still walking the old table see a consistent snapshot, because the old table is never written again.
+	 * @param seg The segment being resized, whose lock must be held.
+	 * @param newSize The number of slots in the new table.
+	 */
+	private void resize(Segment<K,V> seg, int newSize) {
+
+		AtomicReferenceArray<Node<K,V>> oldTable = seg.table;
+		AtomicReferenceArray<Node<K,V>> newTable = new AtomicReferenceArray<>(newSize);
+		int mask = newSize - 1;
+
+		for(int i = 0; i < oldTable.length(); i++)
+		{
+			Node<K,V> node = oldTable.get(i);
+			if(node == null || node == TOMBSTONE)
+				continue;
+
+			int index = node.hash & mask;
+			int check = index;
+			for(int step = 1; newTable.get(check) != null; step++)
+				check = HashMap.ProbeStrategy.TRIANGULAR.next(index, check, step, mask);
+
+			//A lazy write is enough here because the table is not visible to readers until the volatile write below.
+			newTable.lazySet(check, node);
+		}
+
+		seg.table = newTable;
+		seg.tombstones = 0;
+	}
+
+	/**
+	 * Helper method for get and containsKey that searches for a key without locking.
+	 * @param key The key being looked for.
+	 * @return The node holding the key, or null if it is not in the map.
+	 */
+	private Node<K,V> findNode(Object key) {
+
+		int hash = hash(key);
+		Segment<K,V> seg = segmentFor(hash);
+
+		while(true)
+		{
+			AtomicReferenceArray<Node<K,V>> table = seg.table;
+			int slot = slotOf(table, key, hash);
+
+			//If a resize replaced the table during the search, the key may have been moved, so the search is repeated.
+			if(seg.table == table)
+				return slot < 0 ? null : table.get(slot);
+		}
+	}
+
+	/**
+	 * Helper method for replace that searches for a key while holding the segment lock.
+	 * @param seg The segment being searched.
+	 * @param key The key being looked for.
+	 * @param hash The mixed hash code of the key.
+	 * @return The node holding the key, or null if it is not in the segment.
+	 */
+	private Node<K,V> lockedFind(Segment<K,V> seg, Object key, int hash) {
+
+		AtomicReferenceArray<Node<K,V>> table = seg.table;
+		int slot = slotOf(table, key, hash);
+		return slot < 0 ? null : table.get(slot);
+	}
+
+	/**
+	 * Walks the probing sequence of a key in one table.
+	 * @param table The table being searched.
+	 * @param key The key being looked for.
+	 * @param hash The mixed hash code of the key.
+	 * @return The slot holding the key, or -1 if it is not in the table.
+	 */
+	private int slotOf(AtomicReferenceArray<Node<K,V>> table, Object key, int hash) {
+
+		int length = table.length();
+		int mask = length - 1;
+		int index = hash & mask;
+		int check = index;
+		Node<K,V> node;
+
+		for(int i = 1; i <= length && (node = table.get(check)) != null; i++)
+		{
+			//A bunny/tombstone never matches because its hash and key are never those of a real key.
+			if(node != TOMBSTONE && node.hash == hash && key.equals(node.key))
+				return check;
+
+			check = HashMap.ProbeStrategy.TRIANGULAR.next(index, check, i, mask);
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Picks the segment of a hash code using its high bits, so that the low bits used inside the segment stay independent.
+	 * @param hash The mixed hash code of a key.
+	 * @return The segment the key belongs to.
+	 */
+	private Segment<K,V> segmentFor(int hash) {
+
+		return segments[segmentShift == 32 ? 0 : hash >>> segmentShift];
+	}
+
+	/**
+	 * Runs a key's hash code through the MurmurHash3 finalizer.
+	 * @param key The key being hashed.
+	 * @return The mixed hash code.
+	 */
+	private static int hash(Object key) {
+
+		return HashMixer.MURMUR3.mix(key.hashCode(), 0);
+	}
+
+	/**
+	 * Returns the shared bunny/tombstone with the type of this map's nodes.
+	 * @return The tombstone node.
+	 */
+	@SuppressWarnings("unchecked")
+	private Node<K,V> tombstone() {
+
+		return (Node<K,V>) TOMBSTONE;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The set is a live view of the map. Its iterator is weakly consistent, like the one of entrySet, and no segment is copied.
+	 */
+	public Set<K> keySet() {
+
+		return new AbstractSet<K>() {
+			public Iterator<K> iterator() {
+				return new NodeIterator<K>() {
+					public K next() { return nextNode().key; }
+				};
+			}
+			public int size() { return ConcurrentHashMap.this.size(); }
+			public boolean isEmpty() { return ConcurrentHashMap.this.isEmpty(); }
+			public boolean contains(Object o) { return containsKey(o); }
+			public boolean remove(Object o) { return ConcurrentHashMap.this.remove(o) != null; }
+			public void clear() { ConcurrentHashMap.this.clear(); }
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The collection is a live view of the map. Its iterator is weakly consistent, like the one of entrySet.
+	 */
+	public Collection<V> values() {
+
+		return new AbstractCollection<V>() {
+			public Iterator<V> iterator() {
+				return new NodeIterator<V>() {
+					public V next() { return nextNode().value; }
+				};
+			}
+			public int size() { return ConcurrentHashMap.this.size(); }
+			public boolean isEmpty() { return ConcurrentHashMap.this.isEmpty(); }
+			public boolean contains(Object o) { return containsValue(o); }
+			public void clear() { ConcurrentHashMap.this.clear(); }
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The set is a live view of the map. Its iterator is weakly consistent: it never throws ConcurrentModificationException,
+	 * returns every pair present for the whole iteration exactly once, and may or may not return pairs added or removed while it runs.
+	 * Setting the value of an entry puts it in the map.
+	 */
+	public Set<Map.Entry<K,V>> entrySet() {
+
+		return new AbstractSet<Map.Entry<K,V>>() {
+			public Iterator<Map.Entry<K,V>> iterator() {
+				return new NodeIterator<Map.Entry<K,V>>() {
+					public Map.Entry<K,V> next() {
+						Node<K,V> node = nextNode();
+						return new WriteThroughEntry(node.key, node.value);
+					}
+				};
+			}
+			public int size() { return ConcurrentHashMap.this.size(); }
+			public boolean isEmpty() { return ConcurrentHashMap.this.isEmpty(); }
+			public boolean contains(Object o) {
+
+				if(!(o instanceof Map.Entry))
+					return false;
+
+				Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+				Object value = e.getKey() == null ? null : get(e.getKey());
+				return value != null && value.equals(e.getValue());
+			}
+			public boolean remove(Object o) {
+
+				if(!(o instanceof Map.Entry))
+					return false;
+
+				Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+				return ConcurrentHashMap.this.remove(e.getKey(), e.getValue());
+			}
+			public void clear() { ConcurrentHashMap.this.clear(); }
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Each pair is put on its own, so other threads may see some of the pairs before the rest.
+	 */
+	public void	putAll(Map<? extends K,? extends V> m) {
+
+		for(Map.Entry<? extends K,? extends V> e : m.entrySet())
+			put(e.getKey(), e.getValue());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Never locks, so a value being added or removed at the same time may or may not be seen.
+	 */
+	public boolean containsValue(Object value) {
+
+		if(value == null)
+			return false;
+
+		for(NodeIterator<Node<K,V>> it = new NodeIterator<Node<K,V>>() {
+				public Node<K,V> next() { return nextNode(); }
+			}; it.hasNext(); )
+		{
+			if(value.equals(it.next().value))
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The result is only exact while neither map is being changed.
+	 */
+	public boolean equals(Object o) {
+
+		if(o == this)
+			return true;
+		if(!(o instanceof Map))
+			return false;
+
+		Map<?,?> m = (Map<?,?>) o;
+		if(m.size() != size())
+			return false;
+
+		//The map holds no null values, so a missing key in the other map never looks like a match.
+		for(Map.Entry<K,V> e : entrySet())
+		{
+			if(!e.getValue().equals(m.get(e.getKey())))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int hashCode() {
+
+		int h = 0;
+		for(Map.Entry<K,V> e : entrySet())
+			h += e.hashCode();
+
+		return h;
+	}
+
+	/**
+	 * Entry returned by the entrySet iterator. It holds the pair as it was read, and setting its value puts the key back in the map.
+	 */
+	private class WriteThroughEntry implements Map.Entry<K,V> {
+
+		/**
+		 * The key of the entry.
+		 */
+		private final K key;
+
+		/**
+		 * The value of the entry when it was read or last set.
+		 */
+		private V value;
+
+		/**
+		 * Constructor that initializes the entry.
+		 * @param key The key of the entry.
+		 * @param value The value of the entry.
+		 */
+		WriteThroughEntry(K key, V value) { this.key = key; this.value = value; }
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public K getKey() { return key; }
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public V getValue() { return value; }
+
+		/**
+		 * {@inheritDoc}
+		 * The key is put even if another thread removed it since it was read.
+		 */
+		public V setValue(V value) {
+
+			if(value == null)
+				throw new NullPointerException("The value cannot be null.");
+
+			V oldVal = this.value;
+			this.value = value;
+			put(key, value);
+			return oldVal;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean equals(Object o) {
+
+			if(!(o instanceof Map.Entry))
+				return false;
+
+			Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+			return key.equals(e.getKey()) && value.equals(e.getValue());
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public int hashCode() { return key.hashCode() ^ value.hashCode(); }
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public String toString() { return "<" + key + "," + value + ">"; }
+	}
+
+	/**
+	 * Weakly consistent iterator over the live nodes of every segment. It never locks.
+	 * Each segment's table is read once when the iterator reaches it, and a resize after that is not seen.
+	 * Since the old table is never written again, no node is returned twice.
+	 * @param <E> The type of element returned by the iterator.
+	 */
+	private abstract class NodeIterator<E> implements Iterator<E> {
+
+		/**
+		 * The index of the segment being walked.
+		 */
+		private int segmentIndex = -1;
+
+		/**
+		 * The table of the segment being walked, as it was when the iterator reached it.
+		 */
+		private AtomicReferenceArray<Node<K,V>> table;
+
+		/**
+		 * The index of the last slot read from the table.
+		 */
+		private int slot = -1;
+
+		/**
+		 * The next node to return, or null if there is none.
+		 */
+		private Node<K,V> next;
+
+		/**
+		 * The key of the last node returned, or null if it was removed.
+		 */
+		private K lastKey;
+
+		/**
+		 * Constructor that finds the first live node.
+		 */
+		NodeIterator() {
+
+			advance();
+		}
+
+		/**
+		 * Moves next forward to the next live node, going on to the following segments when a table runs out.
+		 */
+		private void advance() {
+
+			next = null;
+
+			while(true)
+			{
+				if(table != null)
+				{
+					while(++slot < table.length())
+					{
+						Node<K,V> node = table.get(slot);
+						if(node != null && node != TOMBSTONE)
+						{
+							next = node;
+							return;
+						}
+					}
+				}
+
+				if(++segmentIndex >= segments.length)
+					return;
+
+				table = segments[segmentIndex].table;
+				slot = -1;
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean hasNext() {
+
+			return next != null;
+		}
+
+		/**
+		 * Returns the next live node.
+		 * @return The next node.
+		 * @throws NoSuchElementException if there are no more nodes.
+		 */
+		Node<K,V> nextNode() {
+
+			Node<K,V> node = next;
+			if(node == null)
+				throw new NoSuchElementException();
+
+			lastKey = node.key;
+			advance();
+			return node;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * Removes the key from the map even if its value was changed since it was returned.
+		 */
+		public void remove() {
+
+			if(lastKey == null)
+				throw new IllegalStateException();
+
+			ConcurrentHashMap.this.remove(lastKey);
+			lastKey = null;
+		}
+	}
+}
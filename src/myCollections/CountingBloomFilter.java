@@ -0,0 +1,177 @@
+package myCollections;
+
+/**
+ * Blocked Bloom filter with a 4-bit counter in place of each bit, so elements can be removed as well as added.
+ * All the counters of an element are inside one block of 128 counters, which is a single cache line.
+ * A counter that reaches 15 stays there, since the filter no longer knows how many elements share it.
+ * @author Renato Scudere
+ */
+public class CountingBloomFilter {
+
+	/**
+	 * The number of counters in a block. Eight longs of sixteen 4-bit counters make one cache line.
+	 */
+	private static final int BLOCK_COUNTERS = BloomFilter.BLOCK_LONGS * 16;
+
+	/**
+	 * The counters of the filter, sixteen 4-bit counters per long, grouped into blocks of BLOCK_COUNTERS counters.
+	 */
+	private final long[] counters;
+
+	/**
+	 * The number of counters changed for each element.
+	 */
+	private final int numHashes;
+
+	/**
+	 * The number of elements the filter was sized for.
+	 */
+	private final long expectedInsertions;
+
+	/**
+	 * Constructor creates a filter sized for the given number of elements and false positive probability.
+	 * @param expectedInsertions The number of elements expected to be in the filter at once.
+	 * @param fpp The wanted false positive probability with that many elements in the filter.
+	 * @throws IllegalArgumentException if the expected insertions are not positive or the probability is not between 0 and 1.
+	 */
+	public CountingBloomFilter(long expectedInsertions, double fpp) {
+
+		this(BloomFilter.optimalBits(expectedInsertions, fpp), expectedInsertions);
+	}
+
+	/**
+	 * Constructor creates a filter with a fixed counter budget, and picks the number of hash functions that suits the expected number of elements.
+	 * Every counter takes 4 bits of memory.
+	 * @param counterBudget The number of counters the filter may use. It is rounded to a power of two number of blocks.
+	 * @param expectedInsertions The number of elements expected to be in the filter at once.
+	 * @throws IllegalArgumentException if the counter budget or expected insertions are not positive.
+	 */
+	public CountingBloomFilter(long counterBudget, long expectedInsertions) {
+
+		if(counterBudget <= 0 || expectedInsertions <= 0)
+			throw new IllegalArgumentException("The counter budget and expected insertions must be positive.");
+
+		counters = new long[BloomFilter.blocksFor(counterBudget, BLOCK_COUNTERS) * BloomFilter.BLOCK_LONGS];
+		numHashes = BloomFilter.optimalHashes(counters.length * 16L, expectedInsertions);
+		this.expectedInsertions = expectedInsertions;
+	}
+
+	/**
+	 * Adds an element to the filter by incrementing its counters.
+	 * @param o The element being added.
+	 * @throws NullPointerException if the element is null.
+	 */
+	public void add(Object o) {
+
+		int hash = o.hashCode();
+		int base = BloomFilter.block(hash, counters.length / BloomFilter.BLOCK_LONGS) * BloomFilter.BLOCK_LONGS;
+		int g = BloomFilter.spread(hash);
+
+		for(int i = 0; i < numHashes; i++)
+		{
+			//The top 7 bits of g pick one of the 128 counters of the block.
+			int counter = g >>> 25;
+			int word = base + (counter >>> 4);
+			int shift = (counter & 15) << 2;
+
+			//Counters saturate at 15.
+			if(((counters[word] >>> shift) & 0xf) != 0xf)
+				counters[word] += 1L << shift;
+
+			g = BloomFilter.next(g);
+		}
+	}
+
+	/**
+	 * Removes an element from the filter by decrementing its counters.
+	 * The element must have been added before, otherwise other elements could start to be reported as absent.
+	 * @param o The element being removed.
+	 * @return True if the counters were decremented, false if the element was definitely not in the filter.
+	 */
+	public boolean remove(Object o) {
+
+		if(!mightContain(o))
+			return false;
+
+		int hash = o.hashCode();
+		int base = BloomFilter.block(hash, counters.length / BloomFilter.BLOCK_LONGS) * BloomFilter.BLOCK_LONGS;
+		int g = BloomFilter.spread(hash);
+
+		for(int i = 0; i < numHashes; i++)
+		{
+			int counter = g >>> 25;
+			int word = base + (counter >>> 4);
+			int shift = (counter & 15) << 2;
+
+			//A saturated counter may be shared by more elements than it can count, so it is never decremented.
+			long value = (counters[word] >>> shift) & 0xf;
+			if(value != 0xf && value != 0)
+				counters[word] -= 1L << shift;
+
+			g = BloomFilter.next(g);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Checks whether an element might be in the filter.
+	 * @param o The element being looked for.
+	 * @return False if the element is definitely not in the filter, true if it might be.
+	 */
+	public boolean mightContain(Object o) {
+
+		if(o == null)
+			return false;
+
+		int hash = o.hashCode();
+		int base = BloomFilter.block(hash, counters.length / BloomFilter.BLOCK_LONGS) * BloomFilter.BLOCK_LONGS;
+		int g = BloomFilter.spread(hash);
+
+		for(int i = 0; i < numHashes; i++)
+		{
+			int counter = g >>> 25;
+			if(((counters[base + (counter >>> 4)] >>> ((counter & 15) << 2)) & 0xf) == 0)
+				return false;
+
+			g = BloomFilter.next(g);
+		}
+
+		return true;
+	}
+
+	/**
+	 * Sets every counter of the filter back to 0.
+	 */
+	public void clear() {
+
+		java.util.Arrays.fill(counters, 0L);
+	}
+
+	/**
+	 * Returns the number of counters in the filter.
+	 * @return The number of counters.
+	 */
+	public long counterSize() {
+
+		return counters.length * 16L;
+	}
+
+	/**
+	 * Returns the number of counters changed for each element.
+	 * @return The number of hash functions.
+	 */
+	public int hashFunctions() {
+
+		return numHashes;
+	}
+
+	/**
+	 * Returns the number of elements the filter was sized for.
+	 * @return The expected insertions.
+	 */
+	public long expectedInsertions() {
+
+		return expectedInsertions;
+	}
+}
@@ -0,0 +1,765 @@
+package myCollections;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import java.util.Collection; //for returning in the values() function only
+
+/**
+ * Map class that stores its keys, values and cached hash codes in parallel arrays instead of one pair object per entry.
+ * It uses the same power-of-two table and probing sequences as HashMap.
+ * A slot is rejected by comparing the cached hash code before equals is ever called.
+ * @author Renato Scudere
+ *
+ * @param <K> The generic type for the key.
+ * @param <V> The generic type for the value.
+ */
+public class FlatHashMap<K,V> implements Map<K,V> {
+
+	/**
+	 * Marks a slot whose key was removed. Bunnies/tombstones keep the probing sequence intact for later lookups.
+	 */
+	private static final Object TOMBSTONE = new Object();
+
+	/**
+	 * The keys in the map. A null slot is empty and a TOMBSTONE slot was removed.
+	 */
+	private Object[] keys;
+
+	/**
+	 * The values in the map, stored at the same index as their key.
+	 */
+	private Object[] values;
+
+	/**
+	 * The mixed hash codes of the keys, stored at the same index as their key.
+	 */
+	private int[] hashes;
+
+	/**
+	 * The number of elements in the map.
+	 */
+	private int numElements = 0;
+
+	/**
+	 * The number of bunnies/tombstones left in the table by remove.
+	 */
+	private int numTombstones = 0;
+
+	/**
+	 * Stores the maximum load the table can have before rehashing.
+	 */
+	private double maxLoad;
+
+	/**
+	 * Stores the load of live elements plus bunnies/tombstones that triggers a compaction rehash.
+	 */
+	private double compactionThreshold;
+
+	/**
+	 * Stores the original size of the table.
+	 */
+	private int tableSize;
+
+	/**
+	 * Counts the structural changes to the map so that iterators over the views can detect them.
+	 */
+	private int modCount = 0;
+
+	/**
+	 * The probing sequence used by this table.
+	 */
+	private final HashMap.ProbeStrategy probeStrategy;
+
+	/**
+	 * Constructor creates a hash table with the smallest power of two larger than the requested size as its initial size.
+	 * It uses the default max load value of 0.5.
+	 * @param size The requested size for the hash table.
+	 */
+	public FlatHashMap(int size) {
+
+		this(size, 0.5);
+	}
+
+	/**
+	 * Constructor creates a hash table with the smallest power of two larger than the requested size as its initial size.
+	 * It uses the max load value passed to the constructor.
+	 * @param size The requested size of the hash table.
+	 * @param maxLoad The max load value that the table must inhibit.
+	 */
+	public FlatHashMap(int size, double maxLoad) {
+
+		this(size, maxLoad, HashMap.ProbeStrategy.TRIANGULAR);
+	}
+
+	/**
+	 * Constructor creates a hash table with the smallest power of two larger than the requested size as its initial size.
+	 * It uses the max load value and the probing sequence passed to the constructor.
+	 * @param size The requested size of the hash table.
+	 * @param maxLoad The max load value that the table must inhibit.
+	 * @param probeStrategy The probing sequence used to resolve collisions.
+	 * @throws NullPointerException if the probe strategy is null.
+	 */
+	public FlatHashMap(int size, double maxLoad, HashMap.ProbeStrategy probeStrategy) {
+
+		if(probeStrategy == null)
+			throw new NullPointerException("The probe strategy cannot be null.");
+
+		tableSize = HashMap.tableSizeFor(size);
+		allocate(tableSize);
+
+		this.maxLoad = maxLoad;
+		this.probeStrategy = probeStrategy;
+		compactionThreshold = maxLoad + (1 - maxLoad) / 2;
+	}
+
+	/**
+	 * Creates new empty arrays of the given length.
+	 * @param length The length of the new table, which must be a power of two.
+	 */
+	private void allocate(int length) {
+
+		keys = new Object[length];
+		values = new Object[length];
+		hashes = new int[length];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void clear() {
+
+		allocate(tableSize);
+		numElements = 0;
+		numTombstones = 0;
+		modCount++;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isEmpty() {
+
+		return numElements == 0;
+	}
+
+	/**
+	 * Returns the number of slots in the table.
+	 * @return The number of slots in the table.
+	 */
+	public int capacity() {
+
+		return keys.length;
+	}
+
+	/**
+	 * Returns the number of bunnies/tombstones currently left in the table.
+	 * @return The number of slots holding a removed key.
+	 */
+	public int tombstones() {
+
+		return numTombstones;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int size() {
+
+		return numElements;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		//Makes sure the key cannot be null.
+		if(key == null)
+			return null;
+
+		int index = find(key, hash(key));
+
+		if(index < 0)
+			return null;
+		else
+			return (V) values[index];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean containsKey(Object key) {
+
+		return key != null && find(key, hash(key)) >= 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(Object key) {
+		//Makes sure the key cannot be null.
+		if(key == null)
+			return null;
+
+		int index = find(key, hash(key));
+		if(index < 0)
+			return null;
+
+		//The slot is turned into a bunny/tombstone and its value is released.
+		V oldVal = (V) values[index];
+		keys[index] = TOMBSTONE;
+		values[index] = null;
+		numElements--;
+		numTombstones++;
+		modCount++;
+
+		return oldVal;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The key is searched for and an open slot is found in the same pass through the probing sequence, and no entry object is allocated.
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(K key, V value) {
+		if(key == null)
+			throw new NullPointerException("The key cannot be null.");
+
+		int hash = hash(key);
+
+		//The first bunny/tombstone on the way is remembered so that it can be reused if the key is not found.
+		int mask = keys.length - 1;
+		int index = HashMap.indexFor(hash, keys.length);
+		int check = index;
+		int open = -1;
+
+		for(int i = 1; i <= keys.length; i++)
+		{
+			Object k = keys[check];
+
+			if(k == null)
+			{
+				if(open < 0)
+					open = check;
+				break;
+			}
+			else if(k == TOMBSTONE)
+			{
+				if(open < 0)
+					open = check;
+			}
+			else if(hashes[check] == hash && key.equals(k))
+			{
+				V oldVal = (V) values[check];
+				values[check] = value;
+				return oldVal;
+			}
+
+			check = probeStrategy.next(index, check, i, mask);
+		}
+
+		//Quadratic probing cannot reach every slot, so the table grows until the sequence reaches an open one.
+		while(open < 0)
+		{
+			if(!rehash(keys.length * 2))
+				return null;
+
+			open = findOpen(HashMap.indexFor(hash, keys.length), keys);
+		}
+
+		if(keys[open] == TOMBSTONE)
+			numTombstones--;
+
+		keys[open] = key;
+		values[open] = value;
+		hashes[open] = hash;
+		numElements++;
+		modCount++;
+
+		//Rehashes if after adding, the table's load is greater than max load.
+		//Otherwise compacts in place if the live elements and the bunnies/tombstones together are over the threshold.
+		if((numElements / (double)(keys.length)) > maxLoad)
+			rehash(keys.length * 2);
+		else if(((numElements + numTombstones) / (double)(keys.length)) > compactionThreshold)
+			compact();
+
+		return null;
+	}
+
+	/**
+	 * Removes every bunny/tombstone by rehashing the live elements into a table of the same capacity.
+	 * @return True if the table was compacted, false otherwise.
+	 */
+	public boolean compact() {
+
+		if(numTombstones == 0)
+			return true;
+
+		return rehash(keys.length);
+	}
+
+	/**
+	 * Increases or decreases the size of the map to the smallest power of two larger than the requested size, and moves all elements to their new locations relative to the new size.
+	 * @param size The requested size for the hash table.
+	 * @return True if rehashing was successful, false otherwise.
+	 */
+	public boolean rehash(int size) {
+
+		int newSize = HashMap.tableSizeFor(size);
+
+		//Returns false if the new size would increase the load.
+		if((numElements / (double)(newSize)) > maxLoad)
+			return false;
+
+		Object[] oldKeys = keys;
+		Object[] oldValues = values;
+		int[] oldHashes = hashes;
+
+		//If the probing sequence cannot place every element, the new table is doubled and the move is attempted again.
+		allocate(newSize);
+		while(!transfer(oldKeys, oldValues, oldHashes))
+		{
+			if(keys.length == HashMap.MAXIMUM_CAPACITY)
+			{
+				keys = oldKeys;
+				values = oldValues;
+				hashes = oldHashes;
+				return false;
+			}
+
+			allocate(keys.length * 2);
+		}
+
+		numTombstones = 0;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Helper method for rehash that moves every live element of the old arrays into the current ones.
+	 * The cached hash codes are reused, so hashCode is not called again.
+	 * @param oldKeys The keys being moved.
+	 * @param oldValues The values being moved.
+	 * @param oldHashes The hash codes being moved.
+	 * @return True if every element was placed, false if the probing sequence ran out of slots.
+	 */
+	private boolean transfer(Object[] oldKeys, Object[] oldValues, int[] oldHashes) {
+
+		for(int i = 0; i < oldKeys.length; i++)
+		{
+			if(oldKeys[i] == null || oldKeys[i] == TOMBSTONE)
+				continue;
+
+			int slot = findOpen(HashMap.indexFor(oldHashes[i], keys.length), keys);
+			if(slot < 0)
+				return false;
+
+			keys[slot] = oldKeys[i];
+			values[slot] = oldValues[i];
+			hashes[slot] = oldHashes[i];
+		}
+
+		return true;
+	}
+
+	/**
+	 * Helper method used by put and rehash to find the next open slot in the table.
+	 * @param index The original index produced by the hash function.
+	 * @param arr The key array being searched.
+	 * @return The index of the next empty or bunny/tombstone slot, or -1 if none was reached.
+	 */
+	private int findOpen(int index, Object[] arr) {
+
+		int mask = arr.length - 1;
+		int check = index;
+
+		for(int i = 1; i <= arr.length; i++)
+		{
+			if(arr[check] == null || arr[check] == TOMBSTONE)
+				return check;
+
+			check = probeStrategy.next(index, check, i, mask);
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Mixes the hash code of a key so that weak low bits still spread over the table.
+	 * @param key The key being hashed.
+	 * @return The mixed hash code.
+	 */
+	private static int hash(Object key) {
+
+		return HashMixer.MURMUR3.mix(key.hashCode(), 0);
+	}
+
+	/**
+	 * Helper method for get, containsKey and remove that locates the slot of a key.
+	 * @param key The key being looked for.
+	 * @param hash The mixed hash code of the key.
+	 * @return The index of the key, or -1 if it is not in the table.
+	 */
+	private int find(Object key, int hash) {
+
+		int mask = keys.length - 1;
+		int index = HashMap.indexFor(hash, keys.length);
+		int check = index;
+
+		for(int i = 1; i <= keys.length && keys[check] != null; i++)
+		{
+			//The cached hash code rejects most slots before equals is called.
+			//A bunny/tombstone never matches because TOMBSTONE is not equal to any key.
+			if(hashes[check] == hash && key.equals(keys[check]))
+				return check;
+
+			check = probeStrategy.next(index, check, i, mask);
+		}
+
+		return -1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The set is a live view backed by the table, so removing a key from it removes the key from the map.
+	 */
+	public Set<K> keySet() {
+
+		return new AbstractSet<K>() {
+			@SuppressWarnings("unchecked")
+			public Iterator<K> iterator() {
+				return new SlotIterator<K>() {
+					public K next() { return (K) keys[nextSlot()]; }
+				};
+			}
+			public int size() { return numElements; }
+			public boolean contains(Object o) { return containsKey(o); }
+			public boolean remove(Object o) {
+
+				//The size tells whether a key was removed even when its value was null.
+				int before = numElements;
+				FlatHashMap.this.remove(o);
+				return numElements != before;
+			}
+			public void clear() { FlatHashMap.this.clear(); }
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String toString() {
+
+		StringBuilder s = new StringBuilder();
+		for(int i = 0; i < keys.length; i++) {
+			if(keys[i] != null && keys[i] != TOMBSTONE)  {
+				s.append("[");
+				s.append(i);
+				s.append("]: <");
+				s.append(keys[i]);
+				s.append(",");
+				s.append(values[i]);
+				s.append(">\n");
+			}
+		}
+		if(s.length() > 0)
+			s.deleteCharAt(s.length()-1);
+		return s.toString();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The collection is a live view backed by the value array.
+	 */
+	public Collection<V> values() {
+
+		return new AbstractCollection<V>() {
+			@SuppressWarnings("unchecked")
+			public Iterator<V> iterator() {
+				return new SlotIterator<V>() {
+					public V next() { return (V) values[nextSlot()]; }
+				};
+			}
+			public int size() { return numElements; }
+			public boolean contains(Object o) { return containsValue(o); }
+			public void clear() { FlatHashMap.this.clear(); }
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The set is a live view backed by the arrays. Its entries are created as they are returned, and setting their value changes the map.
+	 */
+	public Set<Map.Entry<K,V>> entrySet() {
+
+		return new AbstractSet<Map.Entry<K,V>>() {
+			public Iterator<Map.Entry<K,V>> iterator() {
+				return new SlotIterator<Map.Entry<K,V>>() {
+					public Map.Entry<K,V> next() { return new SlotEntry(nextSlot()); }
+				};
+			}
+			public int size() { return numElements; }
+			public boolean contains(Object o) {
+
+				if(!(o instanceof Map.Entry) || ((Map.Entry<?,?>) o).getKey() == null)
+					return false;
+
+				Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+				int index = find(e.getKey(), hash(e.getKey()));
+				return index >= 0 && Objects.equals(values[index], e.getValue());
+			}
+			public boolean remove(Object o) {
+
+				if(!contains(o))
+					return false;
+
+				FlatHashMap.this.remove(((Map.Entry<?,?>) o).getKey());
+				return true;
+			}
+			public void clear() { FlatHashMap.this.clear(); }
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The table is grown once up front to hold every pair of the other map, so no rehash happens while they are added.
+	 */
+	public void	putAll(Map<? extends K,? extends V> m) {
+
+		//Sizes for the worst case where none of the keys are in this map yet.
+		long required = (long) numElements + m.size();
+		if(required / (double) keys.length > maxLoad)
+			rehash((int) Math.min(HashMap.MAXIMUM_CAPACITY, (long) Math.ceil(required / maxLoad)));
+
+		for(Map.Entry<? extends K,? extends V> e : m.entrySet())
+			put(e.getKey(), e.getValue());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean containsValue(Object value) {
+
+		for(int i = 0; i < keys.length; i++)
+		{
+			if(keys[i] != null && keys[i] != TOMBSTONE && Objects.equals(value, values[i]))
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean equals(Object o) {
+
+		if(o == this)
+			return true;
+		if(!(o instanceof Map))
+			return false;
+
+		Map<?,?> m = (Map<?,?>) o;
+		if(m.size() != numElements)
+			return false;
+
+		for(Map.Entry<K,V> e : entrySet())
+		{
+			V value = e.getValue();
+
+			if(value == null ? !(m.get(e.getKey()) == null && m.containsKey(e.getKey())) : !value.equals(m.get(e.getKey())))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int hashCode() {
+
+		int h = 0;
+		for(Map.Entry<K,V> e : entrySet())
+			h += e.hashCode();
+
+		return h;
+	}
+
+	/**
+	 * Entry for a slot of the arrays, since the map keeps no pair objects.
+	 * Setting its value writes to the slot while the key is still there, and goes through put otherwise.
+	 */
+	private class SlotEntry implements Map.Entry<K,V> {
+
+		/**
+		 * The key array the entry was read from.
+		 */
+		private final Object[] keyArray;
+
+		/**
+		 * The index of the slot.
+		 */
+		private final int index;
+
+		/**
+		 * The key of the entry.
+		 */
+		private final K key;
+
+		/**
+		 * The value of the entry when it was last read or set.
+		 */
+		private V value;
+
+		/**
+		 * Constructor that reads the pair out of a slot.
+		 * @param index The index of the slot.
+		 */
+		@SuppressWarnings("unchecked")
+		SlotEntry(int index) {
+
+			keyArray = keys;
+			this.index = index;
+			key = (K) keys[index];
+			value = (V) values[index];
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public K getKey() { return key; }
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public V getValue() { return value; }
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public V setValue(V value) {
+
+			V oldVal = this.value;
+			this.value = value;
+
+			if(keyArray == keys && keys[index] == key)
+				values[index] = value;
+			else
+				put(key, value);
+
+			return oldVal;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean equals(Object o) {
+
+			if(!(o instanceof Map.Entry))
+				return false;
+
+			Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+			return Objects.equals(key, e.getKey()) && Objects.equals(value, e.getValue());
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public int hashCode() { return Objects.hashCode(key) ^ Objects.hashCode(value); }
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public String toString() { return "<" + key + "," + value + ">"; }
+	}
+
+	/**
+	 * Iterator over the live slots of the table.
+	 * @param <E> The type of element returned by the iterator.
+	 */
+	private abstract class SlotIterator<E> implements Iterator<E> {
+
+		/**
+		 * The index of the next live slot, or the table length if there is none.
+		 */
+		private int next = -1;
+
+		/**
+		 * The slot returned by the last call to nextSlot, or -1 if it was removed.
+		 */
+		private int current = -1;
+
+		/**
+		 * The mod count the map must still have for the iterator to be valid.
+		 */
+		private int expectedModCount = modCount;
+
+		/**
+		 * Constructor that finds the first live slot.
+		 */
+		SlotIterator() {
+
+			advance();
+		}
+
+		/**
+		 * Moves next forward to the next live slot.
+		 */
+		private void advance() {
+
+			do
+				next++;
+			while(next < keys.length && (keys[next] == null || keys[next] == TOMBSTONE));
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean hasNext() {
+
+			return next < keys.length;
+		}
+
+		/**
+		 * Returns the index of the next live slot.
+		 * @return The index of the slot.
+		 * @throws NoSuchElementException if there are no more slots.
+		 * @throws ConcurrentModificationException if the map was changed other than through this iterator.
+		 */
+		int nextSlot() {
+
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if(next >= keys.length)
+				throw new NoSuchElementException();
+
+			current = next;
+			advance();
+			return current;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * The slot becomes a bunny/tombstone, so no other slot moves.
+		 */
+		public void remove() {
+
+			if(current < 0)
+				throw new IllegalStateException();
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+
+			FlatHashMap.this.remove(keys[current]);
+			current = -1;
+			expectedModCount = modCount;
+		}
+	}
+}
@@ -0,0 +1,591 @@
+package myCollections;
+import java.util.AbstractCollection;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import java.util.Collection; //for returning in the values() function only
+
+/**
+ * Immutable map whose keys are placed with a perfect hash function, so every lookup reads exactly one slot.
+ * It is built with the CHD algorithm. The keys are split into small buckets, and each bucket gets a displacement seed
+ * chosen so that all of its keys land in slots no other key uses. This fills the table to about 99%.
+ * Keys with equal hash codes cannot be separated by any seed, so they are kept in a small overflow map instead.
+ * @author Renato Scudere
+ *
+ * @param <K> The generic type for the key.
+ * @param <V> The generic type for the value.
+ */
+public class FrozenHashMap<K,V> implements Map<K,V> {
+
+	/**
+	 * The average number of keys in a bucket. Larger buckets need fewer seeds but take longer to place.
+	 */
+	private static final int BUCKET_SIZE = 5;
+
+	/**
+	 * The fraction of slots the table starts out filling.
+	 */
+	private static final double LOAD = 0.99;
+
+	/**
+	 * The number of seeds tried for one bucket before the table is made larger and the build starts over.
+	 */
+	private static final int MAXIMUM_SEED = 1 << 16;
+
+	/**
+	 * The keys of the table. Slots that no key maps to are null.
+	 */
+	private final Object[] keys;
+
+	/**
+	 * The values of the table, stored at the same index as their key.
+	 */
+	private final Object[] values;
+
+	/**
+	 * The displacement seed of each bucket.
+	 */
+	private final int[] seeds;
+
+	/**
+	 * The keys whose hash code is shared with another key, or null if there are none.
+	 */
+	private final HashMap<K,V> overflow;
+
+	/**
+	 * The number of pairs in the map, including the overflow.
+	 */
+	private final int numElements;
+
+	/**
+	 * Constructor compiles the pairs of a map into a perfect hash table. Used by HashMap.freeze.
+	 * @param source The map being frozen. Its keys must not be null.
+	 */
+	@SuppressWarnings("unchecked")
+	FrozenHashMap(Map<? extends K, ? extends V> source) {
+
+		int n = source.size();
+		Object[] srcKeys = new Object[n];
+		Object[] srcValues = new Object[n];
+		int[] srcHashes = new int[n];
+		int count = 0;
+
+		for(Map.Entry<? extends K, ? extends V> e : source.entrySet())
+		{
+			srcKeys[count] = e.getKey();
+			srcValues[count] = e.getValue();
+			srcHashes[count] = e.getKey().hashCode();
+			count++;
+		}
+
+		//A hash code seen more than once sends all of its keys to the overflow map.
+		IntIntHashMap hashCounts = new IntIntHashMap(n * 2);
+		for(int i = 0; i < n; i++)
+			hashCounts.addTo(srcHashes[i], 1);
+
+		HashMap<K,V> extra = null;
+		int kept = 0;
+
+		for(int i = 0; i < n; i++)
+		{
+			if(hashCounts.get(srcHashes[i]) > 1)
+			{
+				if(extra == null)
+					extra = new HashMap<>(16);
+				extra.put((K) srcKeys[i], (V) srcValues[i]);
+			}
+			else
+			{
+				srcKeys[kept] = srcKeys[i];
+				srcValues[kept] = srcValues[i];
+				srcHashes[kept] = srcHashes[i];
+				kept++;
+			}
+		}
+
+		overflow = extra;
+		numElements = n;
+		seeds = new int[Math.max(1, (kept + BUCKET_SIZE - 1) / BUCKET_SIZE)];
+
+		//If some bucket runs out of seeds, the table gets a few percent larger and the build starts over.
+		int length = Math.max(1, (int) Math.ceil(kept / LOAD));
+		int[] slots;
+		while((slots = place(srcHashes, kept, length)) == null)
+			length += Math.max(1, length / 32);
+
+		keys = new Object[length];
+		values = new Object[length];
+		for(int i = 0; i < kept; i++)
+		{
+			keys[slots[i]] = srcKeys[i];
+			values[slots[i]] = srcValues[i];
+		}
+	}
+
+	/**
+	 * Helper method for the constructor that picks a seed for every bucket, biggest bucket first.
+	 * @param hashes The hash codes of the keys, all different.
+	 * @param n The number of keys.
+	 * @param length The number of slots in the table.
+	 * @return The slot of every key, or null if some bucket could not be placed with any seed.
+	 */
+	private int[] place(int[] hashes, int n, int length) {
+
+		int numBuckets = seeds.length;
+
+		//Groups the keys by bucket with a counting sort.
+		int[] start = new int[numBuckets + 1];
+		for(int i = 0; i < n; i++)
+			start[bucket(hashes[i]) + 1]++;
+		for(int b = 0; b < numBuckets; b++)
+			start[b + 1] += start[b];
+
+		int[] members = new int[n];
+		int[] fill = start.clone();
+		for(int i = 0; i < n; i++)
+			members[fill[bucket(hashes[i])]++] = i;
+
+		//Orders the buckets from largest to smallest, also with a counting sort, since large buckets are the hardest to place.
+		int maxSize = 0;
+		for(int b = 0; b < numBuckets; b++)
+			maxSize = Math.max(maxSize, start[b + 1] - start[b]);
+
+		int[] bySize = new int[maxSize + 2];
+		for(int b = 0; b < numBuckets; b++)
+			bySize[maxSize - (start[b + 1] - start[b]) + 1]++;
+		for(int s = 0; s <= maxSize; s++)
+			bySize[s + 1] += bySize[s];
+
+		int[] order = new int[numBuckets];
+		for(int b = 0; b < numBuckets; b++)
+			order[bySize[maxSize - (start[b + 1] - start[b])]++] = b;
+
+		boolean[] taken = new boolean[length];
+		int[] slots = new int[n];
+		int[] trial = new int[maxSize];
+
+		for(int b : order)
+		{
+			int size = start[b + 1] - start[b];
+			if(size == 0)
+				break;
+
+			int seed = 0;
+			while(!fits(hashes, members, start[b], size, seed, length, taken, trial))
+			{
+				if(++seed == MAXIMUM_SEED)
+					return null;
+			}
+
+			seeds[b] = seed;
+			for(int j = 0; j < size; j++)
+			{
+				taken[trial[j]] = true;
+				slots[members[start[b] + j]] = trial[j];
+			}
+		}
+
+		return slots;
+	}
+
+	/**
+	 * Helper method for place that checks whether a seed sends every key of a bucket to a different free slot.
+	 * @param hashes The hash codes of the keys.
+	 * @param members The keys grouped by bucket.
+	 * @param first The position of the bucket's first key in members.
+	 * @param size The number of keys in the bucket.
+	 * @param seed The seed being tried.
+	 * @param length The number of slots in the table.
+	 * @param taken The slots already used by earlier buckets.
+	 * @param trial The array receiving the slot of each key of the bucket.
+	 * @return True if the seed works, false otherwise.
+	 */
+	private static boolean fits(int[] hashes, int[] members, int first, int size, int seed, int length, boolean[] taken, int[] trial) {
+
+		for(int j = 0; j < size; j++)
+		{
+			int slot = slot(hashes[members[first + j]], seed, length);
+			if(taken[slot])
+				return false;
+
+			//Two keys of the same bucket may also collide with each other.
+			for(int k = 0; k < j; k++)
+			{
+				if(trial[k] == slot)
+					return false;
+			}
+
+			trial[j] = slot;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Picks the bucket of a hash code.
+	 * @param hash The hash code of the key.
+	 * @return The index of the bucket.
+	 */
+	private int bucket(int hash) {
+
+		return reduce(HashMixer.MURMUR3.mix(hash, 0), seeds.length);
+	}
+
+	/**
+	 * Picks the slot of a hash code under a bucket's seed.
+	 * @param hash The hash code of the key.
+	 * @param seed The seed of the key's bucket.
+	 * @param length The number of slots in the table.
+	 * @return The index of the slot.
+	 */
+	private static int slot(int hash, int seed, int length) {
+
+		return reduce(HashMixer.MURMUR3.mix(hash, (seed + 1) * 0x9e3779b9), length);
+	}
+
+	/**
+	 * Maps a hash onto a range that need not be a power of two, with a multiply and shift instead of a remainder.
+	 * @param hash The hash being mapped.
+	 * @param n The size of the range.
+	 * @return A value from 0 to n - 1.
+	 */
+	private static int reduce(int hash, int n) {
+
+		return (int) (((hash & 0xffffffffL) * n) >>> 32);
+	}
+
+	/**
+	 * Finds the slot a key would be in.
+	 * @param key The key being looked for, which must not be null.
+	 * @return The index of the key, or -1 if it is not in the table.
+	 */
+	private int find(Object key) {
+
+		int hash = key.hashCode();
+		int slot = slot(hash, seeds[bucket(hash)], keys.length);
+
+		return key.equals(keys[slot]) ? slot : -1;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		//Makes sure the key cannot be null.
+		if(key == null)
+			return null;
+
+		int slot = find(key);
+		if(slot >= 0)
+			return (V) values[slot];
+
+		return overflow == null ? null : overflow.get(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean containsKey(Object key) {
+
+		if(key == null)
+			return false;
+
+		return find(key) >= 0 || (overflow != null && overflow.containsKey(key));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public V getOrDefault(Object key, V defaultValue) {
+
+		return containsKey(key) ? get(key) : defaultValue;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean containsValue(Object value) {
+
+		for(int i = 0; i < keys.length; i++)
+		{
+			if(keys[i] != null && Objects.equals(values[i], value))
+				return true;
+		}
+
+		return overflow != null && overflow.containsValue(value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int size() {
+
+		return numElements;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isEmpty() {
+
+		return numElements == 0;
+	}
+
+	/**
+	 * Returns the number of slots in the table, not counting the overflow map.
+	 * @return The number of slots in the table.
+	 */
+	public int capacity() {
+
+		return keys.length;
+	}
+
+	/**
+	 * Returns the number of pairs kept in the overflow map because their key shares its hash code with another key.
+	 * @return The number of overflow pairs.
+	 */
+	public int overflowSize() {
+
+		return overflow == null ? 0 : overflow.size();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Set<K> keySet() {
+
+		return new AbstractSet<K>() {
+			public Iterator<K> iterator() {
+
+				Iterator<Map.Entry<K,V>> it = entrySet().iterator();
+				return new Iterator<K>() {
+					public boolean hasNext() { return it.hasNext(); }
+					public K next() { return it.next().getKey(); }
+				};
+			}
+			public int size() { return numElements; }
+			public boolean contains(Object o) { return containsKey(o); }
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Collection<V> values() {
+
+		return new AbstractCollection<V>() {
+			public Iterator<V> iterator() {
+
+				Iterator<Map.Entry<K,V>> it = entrySet().iterator();
+				return new Iterator<V>() {
+					public boolean hasNext() { return it.hasNext(); }
+					public V next() { return it.next().getValue(); }
+				};
+			}
+			public int size() { return numElements; }
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The entries cannot be changed.
+	 */
+	public Set<Map.Entry<K,V>> entrySet() {
+
+		return new AbstractSet<Map.Entry<K,V>>() {
+			public Iterator<Map.Entry<K,V>> iterator() { return new EntryIterator(); }
+			public int size() { return numElements; }
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean equals(Object o) {
+
+		if(o == this)
+			return true;
+		if(!(o instanceof Map))
+			return false;
+
+		Map<?,?> m = (Map<?,?>) o;
+		if(m.size() != numElements)
+			return false;
+
+		for(Map.Entry<K,V> e : entrySet())
+		{
+			V value = e.getValue();
+
+			if(value == null ? !(m.get(e.getKey()) == null && m.containsKey(e.getKey())) : !value.equals(m.get(e.getKey())))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int hashCode() {
+
+		int h = 0;
+		for(Map.Entry<K,V> e : entrySet())
+			h += e.hashCode();
+
+		return h;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String toString() {
+
+		StringBuilder s = new StringBuilder("{");
+		for(Map.Entry<K,V> e : entrySet())
+			s.append(e.getKey()).append("=").append(e.getValue()).append(", ");
+
+		if(numElements > 0)
+			s.setLength(s.length() - 2);
+		return s.append("}").toString();
+	}
+
+	/**
+	 * Iterator over the pairs of the table in slot order, followed by the pairs of the overflow map.
+	 */
+	private class EntryIterator implements Iterator<Map.Entry<K,V>> {
+
+		/**
+		 * The index of the next used slot, or the table length once the table is done.
+		 */
+		private int next = 0;
+
+		/**
+		 * The iterator over the overflow map, started once the table is done.
+		 */
+		private Iterator<Map.Entry<K,V>> rest;
+
+		/**
+		 * Constructor that finds the first used slot.
+		 */
+		EntryIterator() {
+
+			advance();
+		}
+
+		/**
+		 * Moves next forward to the next used slot.
+		 */
+		private void advance() {
+
+			while(next < keys.length && keys[next] == null)
+				next++;
+
+			if(next == keys.length && rest == null && overflow != null)
+				rest = overflow.entrySet().iterator();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean hasNext() {
+
+			return next < keys.length || (rest != null && rest.hasNext());
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("unchecked")
+		public Map.Entry<K,V> next() {
+
+			if(next < keys.length)
+			{
+				Map.Entry<K,V> e = new AbstractMap.SimpleImmutableEntry<>((K) keys[next], (V) values[next]);
+				next++;
+				advance();
+				return e;
+			}
+
+			if(rest == null)
+				throw new NoSuchElementException();
+
+			//The overflow pairs are copied so they cannot be changed through the entry.
+			Map.Entry<K,V> e = rest.next();
+			return new AbstractMap.SimpleImmutableEntry<>(e);
+		}
+	}
+
+	/* The following methods change the map, which is immutable.
+	 */
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public V put(K key, V value) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public V remove(Object key) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void	putAll(Map<? extends K,? extends V> m) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void clear() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public V putIfAbsent(K key, V value) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+		throw new UnsupportedOperationException();
+	}
+}
@@ -0,0 +1,454 @@
+package myCollections;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Bag class that counts how many times each key was added, with the counts kept as ints next to the keys.
+ * It uses the same power-of-two table and triangular probing as HashSet, with a parallel int array in place of boxed Integer values,
+ * so counting an event neither boxes nor probes the table twice.
+ * @author Renato Scudere
+ *
+ * @param <K> The generic type for the key.
+ */
+public class HashBag<K> {
+
+	/**
+	 * Marks a slot whose key was removed. Bunnies/tombstones keep the probing sequence intact for later lookups.
+	 */
+	private static final Object TOMBSTONE = new Object();
+
+	/**
+	 * Stores the maximum load the table can have before rehashing.
+	 */
+	private static final double MAX_LOAD = 0.5;
+
+	/**
+	 * Stores the load of live keys plus bunnies/tombstones that triggers a compaction rehash.
+	 */
+	private static final double COMPACTION_THRESHOLD = 0.75;
+
+	/**
+	 * The keys in the bag. A null slot is empty and a TOMBSTONE slot was removed.
+	 */
+	private Object[] keys;
+
+	/**
+	 * The count of each key, stored at the same index as the key.
+	 */
+	private int[] counts;
+
+	/**
+	 * The number of distinct keys in the bag.
+	 */
+	private int numElements = 0;
+
+	/**
+	 * The number of bunnies/tombstones left in the table by removals.
+	 */
+	private int numTombstones = 0;
+
+	/**
+	 * The sum of the counts of every key.
+	 */
+	private long total = 0;
+
+	/**
+	 * Stores the original size of the table.
+	 */
+	private final int tableSize;
+
+	/**
+	 * Constructor that calls the single parameter constructor to set the size to 16.
+	 */
+	public HashBag() {
+
+		this(16);
+	}
+
+	/**
+	 * Overloaded constructor that passes a size as an argument.
+	 * @param size The starting size of the table.
+	 */
+	public HashBag(int size) {
+
+		tableSize = HashMap.tableSizeFor(size);
+		keys = new Object[tableSize];
+		counts = new int[tableSize];
+	}
+
+	/**
+	 * Returns the number of distinct keys in the bag.
+	 * @return The number of keys with a positive count.
+	 */
+	public int size() {
+
+		return numElements;
+	}
+
+	/**
+	 * Checks whether the bag is empty.
+	 * @return True if no key has a positive count, false otherwise.
+	 */
+	public boolean isEmpty() {
+
+		return numElements == 0;
+	}
+
+	/**
+	 * Returns the sum of the counts of every key.
+	 * @return The total count.
+	 */
+	public long total() {
+
+		return total;
+	}
+
+	/**
+	 * Returns the number of slots in the table.
+	 * @return The number of slots in the table.
+	 */
+	public int capacity() {
+
+		return keys.length;
+	}
+
+	/**
+	 * Adds one to the count of a key.
+	 * @param key The key being counted.
+	 * @return The new count of the key.
+	 * @throws NullPointerException if the key is null.
+	 */
+	public int add(K key) {
+
+		return increment(key, 1);
+	}
+
+	/**
+	 * Adds a delta to the count of a key. A key whose count drops to 0 or below is removed from the bag.
+	 * The key is searched for and an open slot is found in the same pass through the probing sequence, so the table is probed once.
+	 * @param key The key being counted.
+	 * @param delta The amount added to the count, which may be negative.
+	 * @return The new count of the key, or 0 if it is no longer in the bag.
+	 * @throws NullPointerException if the key is null.
+	 * @throws ArithmeticException if the count would overflow an int.
+	 */
+	public int increment(K key, int delta) {
+		if(key == null)
+			throw new NullPointerException("The key cannot be null.");
+
+		int hash = hash(key);
+
+		//The first bunny/tombstone on the way is remembered so that it can be reused if the key is not found.
+		int mask = keys.length - 1;
+		int index = HashMap.indexFor(hash, keys.length);
+		int check = index;
+		int open = -1;
+
+		for(int i = 1; i <= keys.length; i++)
+		{
+			Object o = keys[check];
+
+			if(o == null)
+			{
+				if(open < 0)
+					open = check;
+				break;
+			}
+			else if(o == TOMBSTONE)
+			{
+				if(open < 0)
+					open = check;
+			}
+			else if(key.equals(o))
+			{
+				int count = Math.addExact(counts[check], delta);
+
+				//A count that drops to 0 or below removes the key.
+				if(count <= 0)
+				{
+					total -= counts[check];
+					removeAt(check);
+					return 0;
+				}
+
+				total += delta;
+				counts[check] = count;
+				return count;
+			}
+
+			check = HashMap.ProbeStrategy.TRIANGULAR.next(index, check, i, mask);
+		}
+
+		//A key that is not in the bag cannot have its count lowered.
+		if(delta <= 0)
+			return 0;
+
+		if(keys[open] == TOMBSTONE)
+			numTombstones--;
+
+		keys[open] = key;
+		counts[open] = delta;
+		numElements++;
+		total += delta;
+
+		//Rehashes if after adding, the table's load is greater than max load.
+		//Otherwise compacts in place if the live keys and the bunnies/tombstones together are over the threshold.
+		if((numElements / (double)(keys.length)) > MAX_LOAD)
+			rehash(keys.length * 2);
+		else if(((numElements + numTombstones) / (double)(keys.length)) > COMPACTION_THRESHOLD)
+			rehash(keys.length);
+
+		return delta;
+	}
+
+	/**
+	 * Returns the count of a key.
+	 * @param key The key being looked for.
+	 * @return The count of the key, or 0 if it is not in the bag.
+	 */
+	public int count(Object key) {
+
+		int index = find(key);
+		return index < 0 ? 0 : counts[index];
+	}
+
+	/**
+	 * Checks whether a key has a positive count.
+	 * @param key The key being looked for.
+	 * @return True if the key is in the bag, false otherwise.
+	 */
+	public boolean contains(Object key) {
+
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Removes a key from the bag no matter its count.
+	 * @param key The key being removed.
+	 * @return The count the key had, or 0 if it was not in the bag.
+	 */
+	public int remove(Object key) {
+
+		int index = find(key);
+		if(index < 0)
+			return 0;
+
+		int count = counts[index];
+		total -= count;
+		removeAt(index);
+		return count;
+	}
+
+	/**
+	 * Helper method that turns the slot of a key into a bunny/tombstone.
+	 * @param index The index of the key.
+	 */
+	private void removeAt(int index) {
+
+		keys[index] = TOMBSTONE;
+		counts[index] = 0;
+		numElements--;
+		numTombstones++;
+	}
+
+	/**
+	 * Removes every key from the bag.
+	 */
+	public void clear() {
+
+		keys = new Object[tableSize];
+		counts = new int[tableSize];
+		numElements = 0;
+		numTombstones = 0;
+		total = 0;
+	}
+
+	/**
+	 * Increases or decreases the size of the table to the smallest power of two larger than the requested size, and moves all keys and counts to their new locations relative to the new size.
+	 * @param size The requested size for the hash table.
+	 * @return True if rehashing was successful, false otherwise.
+	 */
+	public boolean rehash(int size) {
+
+		int newSize = HashMap.tableSizeFor(size);
+
+		//Returns false if the new size would increase the load.
+		if((numElements / (double)(newSize)) > MAX_LOAD)
+			return false;
+
+		Object[] oldKeys = keys;
+		int[] oldCounts = counts;
+		keys = new Object[newSize];
+		counts = new int[newSize];
+
+		//Triangular probing reaches every slot, so every key finds an empty one.
+		for(int i = 0; i < oldKeys.length; i++)
+		{
+			if(oldKeys[i] != null && oldKeys[i] != TOMBSTONE)
+			{
+				int index = findEmpty(hash(oldKeys[i]));
+				keys[index] = oldKeys[i];
+				counts[index] = oldCounts[i];
+			}
+		}
+
+		numTombstones = 0;
+		return true;
+	}
+
+	/**
+	 * Helper method for rehash that finds the first empty slot in the probing sequence of a hash.
+	 * @param hash The mixed hash code of the key being placed.
+	 * @return The index of the empty slot.
+	 */
+	private int findEmpty(int hash) {
+
+		int mask = keys.length - 1;
+		int index = HashMap.indexFor(hash, keys.length);
+		int check = index;
+
+		for(int i = 1; keys[check] != null; i++)
+			check = HashMap.ProbeStrategy.TRIANGULAR.next(index, check, i, mask);
+
+		return check;
+	}
+
+	/**
+	 * Helper method that locates the slot of a key.
+	 * @param key The key being looked for.
+	 * @return The index of the key, or -1 if it is not in the table.
+	 */
+	private int find(Object key) {
+
+		if(key == null)
+			return -1;
+
+		int hash = hash(key);
+		int mask = keys.length - 1;
+		int index = HashMap.indexFor(hash, keys.length);
+		int check = index;
+
+		for(int i = 1; i <= keys.length; i++)
+		{
+			Object o = keys[check];
+			if(o == null)
+				return -1;
+
+			//A bunny/tombstone never matches because TOMBSTONE is not equal to any key.
+			if(key.equals(o))
+				return check;
+
+			check = HashMap.ProbeStrategy.TRIANGULAR.next(index, check, i, mask);
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Mixes the hash code of a key so that weak low bits still spread over the table.
+	 * @param key The key being hashed.
+	 * @return The mixed hash code.
+	 */
+	private static int hash(Object key) {
+
+		return HashMixer.MURMUR3.mix(key.hashCode(), 0);
+	}
+
+	/**
+	 * Passes every key and its count to an action, without boxing the counts.
+	 * @param action The action called for each key.
+	 */
+	@SuppressWarnings("unchecked")
+	public void forEach(ObjIntConsumer<? super K> action) {
+
+		for(int i = 0; i < keys.length; i++)
+		{
+			if(keys[i] != null && keys[i] != TOMBSTONE)
+				action.accept((K) keys[i], counts[i]);
+		}
+	}
+
+	/**
+	 * Returns the keys with the largest counts.
+	 * A MinHeap kept to n items holds the largest counts seen so far, so the table is scanned once and only the heap is ever sorted,
+	 * which takes time proportional to the capacity plus the size times the logarithm of n.
+	 * @param n The number of keys wanted.
+	 * @return Up to n pairs of a key and its count, from the largest count to the smallest. Keys with equal counts are in no particular order.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public List<Map.Entry<K,Integer>> topN(int n) {
+
+		int bound = Math.max(0, Math.min(n, numElements));
+		MinHeap<Counted> heap = new MinHeap<>(Math.max(1, bound));
+
+		for(int i = 0; i < keys.length; i++)
+		{
+			//Skips the key without creating anything when it cannot beat the smallest count kept so far.
+			if(keys[i] == null || keys[i] == TOMBSTONE || (heap.size() == bound && (bound == 0 || counts[i] <= heap.peek().count)))
+				continue;
+
+			heap.offer(new Counted(i), bound);
+		}
+
+		//Removing the minimum repeatedly fills the result from the back.
+		Map.Entry<K,Integer>[] top = new Map.Entry[heap.size()];
+		for(int i = top.length - 1; i >= 0; i--)
+		{
+			Counted c = heap.removeMin();
+			top[i] = new SimpleImmutableEntry<>((K) keys[c.index], c.count);
+		}
+
+		return Arrays.asList(top);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String toString() {
+
+		StringBuilder s = new StringBuilder("{");
+		forEach((key, count) -> s.append(key).append("=").append(count).append(", "));
+
+		if(numElements > 0)
+			s.setLength(s.length() - 2);
+		return s.append("}").toString();
+	}
+
+	/**
+	 * The count of a slot as it is kept in the MinHeap of topN, ordered by count.
+	 */
+	private class Counted implements Comparable<Counted> {
+
+		/**
+		 * The index of the key in the table.
+		 */
+		final int index;
+
+		/**
+		 * The count of the key.
+		 */
+		final int count;
+
+		/**
+		 * Constructor that reads the count of a slot.
+		 * @param index The index of the key in the table.
+		 */
+		Counted(int index) {
+
+			this.index = index;
+			count = counts[index];
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public int compareTo(Counted other) {
+
+			return Integer.compare(count, other.count);
+		}
+	}
+}
@@ -1,8 +1,24 @@
 package myCollections;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 
 import java.util.Collection; //for returning in the values() function only
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Map class that will be used in the graph.
@@ -14,22 +30,126 @@ import java.util.Collection; //for returning in the values() function only
 public class HashMap<K,V> implements Map<K,V> {
 	
 	/**
-	 * An array of key/value pairs used in the map.
+	 * An array of key/value pairs used in the map, or null while the map is small enough to be kept inline.
 	 */
 	private Pair<K,V>[] storage;
 	
+	/**
+	 * The pairs of a small map laid out as key, value, key, value, searched linearly, or null once the map uses the table.
+	 * A small map allocates neither the table nor a pair object per element.
+	 */
+	private Object[] inline;
+	
+	/**
+	 * The largest number of pairs kept inline before the map moves them into the table.
+	 */
+	static final int INLINE_CAPACITY = 8;
+	
 	/**
 	 * The number of elements in the map.
 	 */
 	private int numElements = 0;
 	
+	/**
+	 * The number of bunnies/tombstones (pairs with a null key) left in the table by remove.
+	 */
+	private int numTombstones = 0;
+	
+	/**
+	 * The largest power of two table length that can be allocated.
+	 */
+	static final int MAXIMUM_CAPACITY = 1 << 30;
+	
+	/**
+	 * The table being emptied by an incremental rehash, or null when no rehash is in progress.
+	 * Every key is in exactly one of storage and oldStorage.
+	 */
+	private Pair<K,V>[] oldStorage;
+	
+	/**
+	 * The next slot of oldStorage to be moved into storage.
+	 */
+	private int migrateIndex;
+	
+	/**
+	 * Counts the steps of incremental rehashing. Moving pairs between the tables does not change the map, so it is not counted in modCount,
+	 * but it can fill the open slot a compute method found before its function ran.
+	 */
+	private int moveCount = 0;
+	
+	/**
+	 * True if growing the table moves the elements a few slots at a time instead of all at once.
+	 */
+	private boolean incrementalRehash = false;
+	
+	/**
+	 * The number of old slots moved by each get, put and remove while an incremental rehash is in progress.
+	 */
+	private static final int REHASH_STEP = 16;
+	
+	/**
+	 * The number of keys whose probing sequences a batch lookup advances together, so that their cache misses overlap.
+	 */
+	private static final int BATCH_GROUP = 16;
+	
+	/**
+	 * True if a full rehash of a large enough table moves the elements on every core of the common fork/join pool.
+	 */
+	private boolean parallelRehash = false;
+	
+	/**
+	 * The smallest table length that a full rehash moves in parallel.
+	 */
+	private int parallelRehashThreshold = 1 << 20;
+	
+	/**
+	 * The number of old slots below which a parallel rehash task stops splitting and moves its slots itself.
+	 */
+	private static final int PARALLEL_CHUNK = 1 << 14;
+	
+	/**
+	 * Gives compare-and-set access to the slots of a new table, so that parallel rehash tasks never place two pairs in the same slot.
+	 */
+	private static final VarHandle SLOT = MethodHandles.arrayElementVarHandle(Pair[].class);
+	
+	/**
+	 * Counts the structural changes to the map so that iterators over the views can detect them.
+	 */
+	private int modCount = 0;
+	
+	/**
+	 * The live view of the keys. Created on first use and shared afterward.
+	 */
+	private Set<K> keySetView;
+	
+	/**
+	 * The live view of the values. Created on first use and shared afterward.
+	 */
+	private Collection<V> valuesView;
+	
+	/**
+	 * The live view of the pairs. Created on first use and shared afterward.
+	 */
+	private Set<Map.Entry<K,V>> entrySetView;
+	
+	/**
+	 * Returned by probe when the probing sequence of a key reached neither the key nor a reusable slot.
+	 */
+	private static final int NO_SLOT = Integer.MIN_VALUE;
+	
+	/**
+	 * Marks a slot of oldStorage whose pair was already moved. It acts like a bunny/tombstone so the probing sequences of the old table stay intact.
+	 */
+	@SuppressWarnings("rawtypes")
+	private static final Pair MOVED = new Pair<>(null, null);
+	
 	/**
 	 * Class that stores one key/value pairs that will be stored in the map.
 	 * @author Renato Scudere.
 	 * @param <K> The generic type for the key.
 	 * @param <V> The generic type for the value.
 	 */
-	protected static class Pair<K,V> {
+	protected static class Pair<K,V> implements Map.Entry<K,V> {
 		
 		/**
 		 * Stores the key in the pair.
@@ -48,39 +168,151 @@ public class HashMap<K,V> implements Map<K,V> {
 		 */
 		Pair(K key, V value) { this.key = key; this.value = value; }
 		
+		/**
+		 * {@inheritDoc}
+		 */
+		public K getKey() { return key; }
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public V getValue() { return value; }
+		
+		/**
+		 * {@inheritDoc}
+		 * Writes straight through to the map, since the pair is the slot's own entry.
+		 */
+		public V setValue(V value) { V oldVal = this.value; this.value = value; return oldVal; }
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean equals(Object o) {
+			
+			if(!(o instanceof Map.Entry))
+				return false;
+			
+			Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+			return Objects.equals(key, e.getKey()) && Objects.equals(value, e.getValue());
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public int hashCode() { return Objects.hashCode(key) ^ Objects.hashCode(value); }
+		
 		/**
 		 * {@inheritDoc}
 		 */
 		public String toString() { return "<" + key + "," + value + ">"; }
 	}
 	
+	/**
+	 * The probing sequences the table can use to resolve collisions.
+	 * All of them are computed with integer arithmetic and a power-of-two mask.
+	 */
+	public enum ProbeStrategy {
+		
+		/**
+		 * Probes the slots home, home + 1, home + 2, ... and visits every slot in the table.
+		 */
+		LINEAR,
+		
+		/**
+		 * Probes the slots home, home + 1, home + 3, home + 6, ... (Hopgood-Davenport).
+		 * On a power-of-two table the triangular numbers visit every slot exactly once.
+		 */
+		TRIANGULAR,
+		
+		/**
+		 * Probes the slots home, home + 1, home + 4, home + 9, ...
+		 * Only a subset of a power-of-two table is reachable, so the table grows if no open slot is found.
+		 */
+		QUADRATIC;
+		
+		/**
+		 * Computes the next slot in the probing sequence using only integer arithmetic.
+		 * @param home The home slot produced by the hash function.
+		 * @param previous The slot that was just checked.
+		 * @param step The number of the probe step being taken, starting at 1.
+		 * @param mask The table length minus one.
+		 * @return The next slot to check.
+		 */
+		int next(int home, int previous, int step, int mask) {
+			
+			switch(this)
+			{
+				case LINEAR:
+					return (previous + 1) & mask;
+				case TRIANGULAR:
+					//home + step(step + 1)/2 is reached by adding the step to the previous slot.
+					return (previous + step) & mask;
+				default:
+					//Overflow of step * step is harmless because the mask only keeps the low bits.
+					return (home + step * step) & mask;
+			}
+		}
+	}
+	
 	/**
 	 * Stores the maximum load the table can have before rehashing.
 	 */
 	private double maxLoad;
 	
+	/**
+	 * Stores the load of live elements plus bunnies/tombstones that triggers a compaction rehash.
+	 */
+	private double compactionThreshold;
+	
 	/**
 	 * Stores the original size of the table.
 	 */
 	private int tableSize;
 	
+	/**
+	 * The probing sequence used by this table.
+	 */
+	private final ProbeStrategy probeStrategy;
+	
+	/**
+	 * The mixing stage applied to every hash code before it is masked onto the table.
+	 */
+	private HashMixer mixer = HashMixer.MURMUR3;
+	
+	/**
+	 * The per-table seed passed to the mixer.
+	 */
+	private int seed = 0;
+	
+	/**
+	 * The number of probe steps findNext took on its last call.
+	 */
+	private int lastProbeLength;
+	
+	/**
+	 * The number of insertions since the seed last changed. Used to keep automatic reseeding amortized O(1).
+	 */
+	private int insertionsSinceReseed = 0;
+	
+	/**
+	 * Counting Bloom filter over the keys that answers most misses before the table is probed, or null if it is off.
+	 */
+	private CountingBloomFilter bloomFilter;
+	
+	/**
+	 * The false positive probability the Bloom filter is sized for.
+	 */
+	private double bloomFpp;
+	
 	/**
 	 * Constructor creates a hash table with the smallest power of two larger than the requested size as its initial size.
 	 * It uses the default max load value of 0.5.
 	 * @param size The requested size for the hash table.
 	 */
-	@SuppressWarnings("unchecked")
 	public HashMap(int size) {
 		
-		for(int i = 0; tableSize < size; i++)
-		{
-			tableSize = (int) Math.pow(2, i);
-		}
-		
-		storage = (Pair<K, V>[]) new Pair[tableSize];
-		
 		//This will use the default maxLoad of 0.5.
-		maxLoad = 0.5;
+		this(size, 0.5);
 	}
 	
 	/**
@@ -89,27 +321,149 @@ public class HashMap<K,V> implements Map<K,V> {
 	 * @param size The requested size of the hash table.
 	 * @param maxLoad The max load value that the table must inhibit.
 	 */
-	@SuppressWarnings("unchecked")
 	public HashMap(int size, double maxLoad) {
 		
-		for(int i = 0; tableSize < size; i++)
-		{
-			tableSize = (int) Math.pow(2, i);
-		}
+		this(size, maxLoad, ProbeStrategy.TRIANGULAR);
+	}
+	
+	/**
+	 * Constructor creates a hash table with the smallest power of two larger than the requested size as its initial size.
+	 * It uses the max load value and the probing sequence passed to the constructor.
+	 * @param size The requested size of the hash table.
+	 * @param maxLoad The max load value that the table must inhibit.
+	 * @param probeStrategy The probing sequence used to resolve collisions.
+	 * @throws NullPointerException if the probe strategy is null.
+	 */
+	@SuppressWarnings("unchecked")
+	public HashMap(int size, double maxLoad, ProbeStrategy probeStrategy) {
+		
+		if(probeStrategy == null)
+			throw new NullPointerException("The probe strategy cannot be null.");
 		
-		storage = (Pair<K, V>[]) new Pair[tableSize];
+		//Every map starts out small, and the table of the requested size is only allocated once it outgrows the inline array.
+		tableSize = tableSizeFor(size);
+		inline = new Object[2 * INLINE_CAPACITY];
 
 		this.maxLoad = maxLoad;
+		this.probeStrategy = probeStrategy;
+		
+		//Compacts once the dead slots take up half of the room left above the max load.
+		compactionThreshold = maxLoad + (1 - maxLoad) / 2;
+	}
+	
+	/**
+	 * Returns the probing sequence used by this table.
+	 * @return The probe strategy chosen at construction.
+	 */
+	public ProbeStrategy probeStrategy() {
+		
+		return probeStrategy;
 	}
 	
 	/**
 	 * {@inheritDoc}
 	 */
-	@SuppressWarnings("unchecked")
+	@SuppressWarnings({"unchecked", "rawtypes"})
 	public void clear() {
 		
-		storage = (Pair<K, V>[]) new Pair[tableSize];
+		oldStorage = null;
 		numElements = 0;
+		numTombstones = 0;
+		modCount++;
+		
+		//The map goes back to being small, unless a Bloom filter is in front of the table.
+		if(bloomFilter != null)
+		{
+			storage = (Pair<K, V>[]) new Pair[tableSize];
+			bloomFilter.clear();
+		}
+		else
+		{
+			storage = null;
+			inline = new Object[2 * INLINE_CAPACITY];
+		}
+	}
+	
+	/**
+	 * Returns whether the map is small enough that its pairs are kept in the inline array instead of the table.
+	 * @return True if the pairs are inline, false if they are in the table.
+	 */
+	public boolean isInline() {
+		
+		return inline != null;
+	}
+	
+	/**
+	 * Moves the pairs of a small map into a table of the requested size, made larger if needed to hold one more pair under the max load.
+	 * Does nothing if the map already uses the table.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private void inflate() {
+		
+		if(inline == null)
+			return;
+		
+		int length = tableSize;
+		while(length < MAXIMUM_CAPACITY && (numElements + 1) / (double) length > maxLoad)
+			length <<= 1;
+		
+		//Quadratic probing may fail to place a pair in a tiny table, so the table doubles until every pair fits.
+		boolean placed = false;
+		while(!placed)
+		{
+			storage = (Pair<K, V>[]) new Pair[length];
+			placed = true;
+			
+			for(int i = 0; i < numElements && placed; i++)
+			{
+				int slot = findNext(indexFor(hash(inline[2 * i]), length), storage);
+				if(slot < 0)
+					placed = false;
+				else
+					storage[slot] = new Pair<>((K) inline[2 * i], (V) inline[2 * i + 1]);
+			}
+			
+			length <<= 1;
+		}
+		
+		inline = null;
+		modCount++;
+	}
+	
+	/**
+	 * Helper method that finds a key in the inline array of a small map.
+	 * @param key The key being looked for, which must not be null.
+	 * @return The index of the key in the inline array, or -1 if it is not there.
+	 */
+	private int inlineIndex(Object key) {
+		
+		for(int i = 0; i < 2 * numElements; i += 2)
+		{
+			if(key.equals(inline[i]))
+				return i;
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Helper method that removes a pair of a small map by moving the last pair into its gap, so the inline pairs stay packed at the front.
+	 * @param i The index of the key in the inline array.
+	 * @return The value of the removed pair.
+	 */
+	@SuppressWarnings("unchecked")
+	private V removeInline(int i) {
+		
+		V oldVal = (V) inline[i + 1];
+		int last = 2 * (numElements - 1);
+		inline[i] = inline[last];
+		inline[i + 1] = inline[last + 1];
+		inline[last] = null;
+		inline[last + 1] = null;
+		numElements--;
+		modCount++;
+		
+		return oldVal;
 	}
 	
 	/**
@@ -122,401 +476,2162 @@ public class HashMap<K,V> implements Map<K,V> {
 	
 	/**
 	 * Returns the number of slots in the table.
+	 * While the pairs are inline no table has been allocated yet, and this returns the requested size the table will start from.
 	 * @return The number of slots in the table.
 	 */
 	public int capacity() {
 		
-		return storage.length;
+		return inline != null ? tableSize : storage.length;
 	}
 	
 	/**
-	 * {@inheritDoc}
+	 * Returns the mixing stage applied to hash codes.
+	 * @return The hash mixer.
 	 */
-	public int size() {
-		//return the number of elements in the table
-		//O(1)
-		return numElements;
+	public HashMixer hashMixer() {
+		
+		return mixer;
 	}
 	
 	/**
-	 * Method that determines if a value for an element is at the given index.
-	 * @param index The index being tested for legitimacy.
-	 * @return True if the index contains a value, else returns false.
+	 * Changes the mixing stage applied to hash codes and rehashes every element in place.
+	 * @param mixer The new hash mixer.
+	 * @throws NullPointerException if the mixer is null.
 	 */
-	private boolean slotContainsValue(int index) {
-		//Private helper method for toString()
-		//O(1)
+	public void setHashMixer(HashMixer mixer) {
 		
-		//Returns true if a "real" value is at the index given
-		//Tombstones (and bunnies) are not "real" values in the map.
-		if(storage[index] != null && storage[index].key != null)
-			return true;
+		if(mixer == null)
+			throw new NullPointerException("The hash mixer cannot be null.");
 		
-		return false;
+		this.mixer = mixer;
+		
+		//The inline array does not depend on hashing.
+		if(inline == null)
+			rehash(storage.length);
 	}
 	
 	/**
-	 * {@inheritDoc}
+	 * Returns the seed currently passed to the mixer.
+	 * @return The seed.
 	 */
-	public V get(Object key) {
-		//Makes sure the key cannot be null.
-		if(key == null)
-			return null;
-		
-		int index = key.hashCode() % storage.length;
-		Pair<K, V> pair;
+	public int seed() {
 		
-		//Converts any negative hash codes to positive.
-		if(index < 0)
-			index *= -1;
+		return seed;
+	}
+	
+	/**
+	 * Changes the seed passed to the mixer and rehashes every element in place.
+	 * @param seed The new seed.
+	 */
+	public void setSeed(int seed) {
 		
-		//Checks to see if the item is directly at the index computed by the hash code.
-		//If not, it iterates through the Hopgood-Davenport probing system.
-		pair = getItem(index, key, storage);
+		this.seed = seed;
+		insertionsSinceReseed = 0;
 		
-		//If the value returned by getNext is null, then the item is not on the table.
-		if(pair != null)
-			return pair.value;
-		else
-			return null;
+		if(inline == null)
+			rehash(storage.length);
 	}
 	
 	/**
-	 * {@inheritDoc}
+	 * Picks a new random seed and rehashes every element in place.
+	 * Keys that collided under the old seed are very unlikely to collide under the new one, unless their hash codes are equal.
 	 */
-	public Set<K> keySet() {
-		//a ThreeTenSet is a Set, so return one of those
-		//max of O(m) where m = number of slots in the table
-		HashSet<K> set = new HashSet<>();
-
-		for(int i = 0; i < storage.length; i++)
-		{
-			if(storage[i] != null && storage[i].key != null)
-			{
-				set.add(storage[i].key);
-			}
-				
-		}
+	public void reseed() {
 		
-		if(set.size() == 0)
-			return null;
-		else
-			return set;
+		setSeed(ThreadLocalRandom.current().nextInt());
 	}
 	
 	/**
-	 * {@inheritDoc}
+	 * Returns whether growing the table moves the elements incrementally.
+	 * @return True if incremental rehashing is on, false otherwise.
 	 */
-	public V remove(Object key) {
-		//Makes sure the key cannot be null.
-		if(key == null)
-			return null;
-		
-		int index = key.hashCode() % storage.length;
-		Pair<K, V> pair;
-		
-		//Converts any negative hash codes to positive.
-		if(index < 0)
-			index *= -1;
+	public boolean incrementalRehash() {
 		
-		//Checks to see if the item is directly at the index computed by the hash code.
-		//If not, it iterates through the Hopgood-Davenport probing system.
-		pair = getItem(index, key, storage);
-		
-		//If the value is found, it is converted to a bunny/tombstone by making the key null.
-		if(pair != null)
-		{
-			pair.key = null;
-			numElements--;
-			return pair.value;
-		}
-		else
-			return null;
+		return incrementalRehash;
 	}
 	
 	/**
-	 * {@inheritDoc}
+	 * Turns incremental rehashing on or off.
+	 * When it is on, growing the table allocates the new array but leaves the elements in the old one, and every get, put and remove
+	 * moves a few of them across until the old array is empty. This keeps a single put from paying for the whole rehash.
+	 * Turning it off finishes any rehash in progress.
+	 * @param incrementalRehash True to move elements incrementally, false to move them all at once.
 	 */
-	public V put(K key, V value) {
-		if(key == null)
-			throw new NullPointerException("The key cannot be null.");
+	public void setIncrementalRehash(boolean incrementalRehash) {
 		
-		//This is the new pair to be added into the table.
-		Pair<K, V> newPair = new Pair<K, V>(key, value);
+		this.incrementalRehash = incrementalRehash;
 		
-		//Stores the old value in the slot being inserted to.
-		V oldVal;
-		
-		//Holds the hash code that will be used as the index.
-		int index = key.hashCode() % storage.length;
-		
-		//The pair used to hold a pair whose key matches the key passed.
-		Pair<K, V> pair;
-		
-		//Converts any negative hash codes to positive.
-		if(index < 0)
-			index *= -1;
-		
-		//Rehashes if the table is full. If not successful, then it returns null and does not add any elements into the table.
-		if(numElements == storage.length)
-		{
-			
-			if(!rehash(storage.length * 2))
-				return null;
-		}
+		if(!incrementalRehash)
+			finishRehash();
+	}
+	
+	/**
+	 * Returns whether an incremental rehash is in progress.
+	 * @return True if elements are still waiting in the old table, false otherwise.
+	 */
+	public boolean isRehashing() {
 		
-		//This call to getItem and subsequent if statement will verify that no two items are inserted twice into the table.
-		//getItem will either find the same key or return null. If it returns the same key, the value is updated.
-		//If it returns null, then that means that the key does not exist in the table and we can proceed adding without worry of duplicates.
-		pair = getItem(index, key, storage);
-		if(pair != null)
-		{
-			oldVal = pair.value;
-			pair.value = value;
-			return oldVal;
-		}
-			
-		//findNext called to find the next open slot in the table.
-		index = findNext(index, storage);
-				
-		//The new pair is placed at the open slot.
-		storage[index] = newPair;
-		oldVal = null;
-		numElements++;
+		return oldStorage != null;
+	}
+	
+	/**
+	 * Moves every element still waiting in the old table of an incremental rehash.
+	 */
+	public void finishRehash() {
 		
-		//Rehashes if after adding, the table's load is greater than max load.
-		if((numElements / (float)(storage.length)) > maxLoad)
-		{
-			if(!rehash(storage.length * 2))
-				return null;
-		}
+		while(oldStorage != null)
+			migrate(oldStorage.length);
+	}
+	
+	/**
+	 * Returns whether a full rehash of a large table moves the elements in parallel.
+	 * @return True if parallel rehashing is on, false otherwise.
+	 */
+	public boolean parallelRehash() {
 		
-		return oldVal;
+		return parallelRehash;
 	}
 	
 	/**
-	 * Increases or decreases the size of the map to the smallest power of two larger than the requested size, and moves all elements to their new locations relative to the new size.
-	 * @param size The requested size for the hash table.
-	 * @return True if rehashing was successful, false otherwise.
+	 * Turns parallel rehashing on or off.
+	 * When it is on, a full rehash of a table with at least parallelRehashThreshold slots splits the old table into ranges,
+	 * and the tasks of the common fork/join pool place the pairs of their range into the new table with compare-and-set.
+	 * An incremental rehash already spreads its work over many operations, so it is never done in parallel.
+	 * @param parallelRehash True to move elements in parallel, false to move them on the calling thread.
 	 */
-	@SuppressWarnings("unchecked")
-	public boolean rehash(int size) {
+	public void setParallelRehash(boolean parallelRehash) {
 		
-		int newIndex;
-		int newSize = 0;
+		this.parallelRehash = parallelRehash;
+	}
+	
+	/**
+	 * Returns the smallest table length that a full rehash moves in parallel.
+	 * @return The parallel rehash threshold.
+	 */
+	public int parallelRehashThreshold() {
 		
-		//Calculates the new size of the table as a power of 2.
-		for(int i = 0; newSize < size; i++)
-		{
-			newSize = (int) Math.pow(2, i);
-		}
+		return parallelRehashThreshold;
+	}
+	
+	/**
+	 * Changes the smallest table length that a full rehash moves in parallel.
+	 * Smaller tables are not worth the cost of splitting the work.
+	 * @param parallelRehashThreshold The new threshold.
+	 * @throws IllegalArgumentException if the threshold is not positive.
+	 */
+	public void setParallelRehashThreshold(int parallelRehashThreshold) {
 		
-		//Returns false if the new size would increase the load.
-		if((numElements / (float)(newSize)) > maxLoad)
-			return false;
+		if(parallelRehashThreshold <= 0)
+			throw new IllegalArgumentException("The parallel rehash threshold must be positive.");
 		
-		//New array that will be getting the items in old storage.
-		Pair<K, V> [] newStorage = (Pair<K, V>[]) new Pair[newSize];
+		this.parallelRehashThreshold = parallelRehashThreshold;
+	}
+	
+	/**
+	 * Puts a counting Bloom filter in front of the table, so that most lookups and removals of absent keys return after a single cache line is read.
+	 * The filter is kept up to date by every insertion and removal, and is rebuilt twice as large whenever the map outgrows it.
+	 * @param fpp The false positive probability the filter is sized for.
+	 * @throws IllegalArgumentException if the probability is not between 0 and 1.
+	 */
+	public void enableBloomFilter(double fpp) {
 		
-		//Iterates from the start of storage to length - 1.
-		for(int i = 0; i < storage.length; i++)
-		{
-			//Checks to see if the item at the index i is either null or a bunny/tombstone.
-			//If it is, they are skipped
-			if(storage[i] == null || storage[i].key == null)
-				continue;
-			else
-			{
-				//Computes a new hash with the new table size.
-				newIndex = storage[i].key.hashCode() % newStorage.length;
-				
-				//Converts any negative hash codes to positive.
-				if(newIndex < 0)
-					newIndex *= -1;
-				
-				//Finds the next open slot in the new array.
-				newIndex = findNext(newIndex, newStorage);
-				newStorage[newIndex] = storage[i];
-			}
-		}
+		if(!(fpp > 0 && fpp < 1))
+			throw new IllegalArgumentException("The false positive probability must be between 0 and 1.");
 		
-		//Sets storage to the new array so that it can now reference the new table.
-		storage = newStorage;
+		//The filter only sits in front of the table, so a small map moves its pairs there first.
+		inflate();
+		bloomFpp = fpp;
+		rebuildBloomFilter(Math.max(numElements, (int)(storage.length * maxLoad)));
+	}
+	
+	/**
+	 * Removes the Bloom filter from in front of the table.
+	 */
+	public void disableBloomFilter() {
 		
-		return true;
+		bloomFilter = null;
 	}
 	
 	/**
-	 * Helper method used by put and rehash to find the next open slot in the table.
-	 * @param index The original index produced by the hash function.
-	 * @param arr The array being searched.
-	 * @return The index of the next open slot based on the Hopgood-Davenport probing system.
+	 * Returns whether a Bloom filter is in front of the table.
+	 * @return True if the filter is on, false otherwise.
 	 */
-	private int findNext(int index, Pair<K, V> [] arr)
-	{
-		int check = index;
-
-		for(int i = 1; arr[check] != null; i++)
-		{	
-			
-			//Checks if the key at a particular index is a bunny/tombstone.
-			//If it is, then we break and return this index because bunnies/tombstones can be overwritten.
-			if(arr[check].key == null)
-				break;
-			
-			check = (int) (index + (0.5 * i) + (0.5 * Math.pow(i, 2)));
-			
-			//Wrap-around is implemented by adding the step size to the original index and getting the remainder with the array size.
-			if(check == arr.length)
-				check = 0;
-			else if(check >= arr.length)
-				check = check % arr.length;
-		}
+	public boolean hasBloomFilter() {
 		
-		return check;
+		return bloomFilter != null;
 	}
 	
 	/**
-	 * Helper method for get, remove and put. It finds the value at the key or returns null if not found.
-	 * @param index The starting index to search.
-	 * @param key The key being compared.
-	 * @param arr The array being iterated through.
-	 * @return The pair at the location found based on the Hopgood-Davenport probing system.
+	 * Replaces the Bloom filter with one sized for the given number of keys, and adds every key of the map to it.
+	 * @param expectedInsertions The number of keys the new filter is sized for.
 	 */
-	private Pair<K, V> getItem(int index, Object key, Pair<K, V> [] arr)
-	{
-		int check = index;
-		int prevCheck;
+	private void rebuildBloomFilter(int expectedInsertions) {
 		
-		//Iterates through the probing sequence until either the element is found or a null appears.
-		//If a null appears after a probing step, then the item is not on the list.
-		for(int i = 1; arr[check] != null; i++)
+		bloomFilter = new CountingBloomFilter(Math.max(1, expectedInsertions), bloomFpp);
+		
+		for(Pair<K, V> pair : storage)
 		{
-			//Checks if the key matches an item in the list.
-			if(key.equals(arr[check].key))
-				return arr[check];
-			else
+			if(pair != null && pair.key != null)
+				bloomFilter.add(pair.key);
+		}
+		
+		//Keys still waiting in the old table of an incremental rehash are in the map too.
+		if(oldStorage != null)
+		{
+			for(Pair<K, V> pair : oldStorage)
 			{
-				//Stores the previous checked index before computing the next index. Used in the infinite loop test later.
-				prevCheck = check;
-				check = (int) (index + (0.5 * i) + (0.5 * Math.pow(i, 2)));
+				if(pair != null && pair.key != null)
+					bloomFilter.add(pair.key);
 			}
-				
-			
-			//Wrap-around is implemented by adding the step size to the original index and getting the remainder with the array size.
-			if(check == arr.length)
-				check = 0;
-			else if(check > arr.length)
-				check = check % arr.length;
-			
-			//Makes sure that the loop will eventually stop once it returns back to the original index or if it has gone to the same index twice in a row.
-			//I bet there are better ways to make this stop, and I'm not even sure if this will stop all cases.
-			//This will definitely need to be studied further in the future.
-			if(check == index || check == prevCheck)
-				break;
 		}
-		
-		return null;
 	}
 	
 	/**
-	 * {@inheritDoc}
+	 * Returns the number of bunnies/tombstones currently left in the table.
+	 * @return The number of slots holding a removed pair.
 	 */
-	public String toString() {
+	public int tombstones() {
 		
-		return toString(false);
+		return numTombstones;
 	}
 	
 	/**
-	 * Overloaded toString method that creates the string of the map based on the locations of the items in the map.
-	 * @param showEmpty Boolean value used to compare if an item is in the map or not.
-	 * @return The newly constructed string.
+	 * Returns the load of live elements plus bunnies/tombstones that triggers a compaction rehash.
+	 * @return The compaction threshold.
 	 */
-	public String toString(boolean showEmpty) {
+	public double compactionThreshold() {
 		
-		StringBuilder s = new StringBuilder();
-		for(int i = 0; i < storage.length; i++) {
-			if(showEmpty || slotContainsValue(i))  {
-				s.append("[");
-				s.append(i);
-				s.append("]: ");
-				s.append(storage[i]);
-				s.append("\n");
-			}
-		}
-		s.deleteCharAt(s.length()-1);
-		return s.toString();
+		return compactionThreshold;
 	}
-
+	
 	/**
-	 * Converts the map into an array.
-	 * @return The array version of the map.
+	 * Changes the load of live elements plus bunnies/tombstones that triggers a compaction rehash.
+	 * @param compactionThreshold The new threshold.
+	 * @throws IllegalArgumentException if the threshold is not above the max load or is above 1.
 	 */
-	@SuppressWarnings("unchecked")
-	public Object[] toArray() {
+	public void setCompactionThreshold(double compactionThreshold) {
 		
-		Pair<K,V>[] ret = (Pair<K,V>[]) new Pair[numElements];
-		for(int i = 0, j = 0; i < storage.length; i++) {
-			if(slotContainsValue(i)) {
-				ret[j++] = new Pair<>(storage[i].key, storage[i].value);
-			}
-		}
-		return (Object[]) ret;
+		//A threshold at or below the max load would compact on almost every insertion.
+		if(!(compactionThreshold > maxLoad && compactionThreshold <= 1))
+			throw new IllegalArgumentException("The compaction threshold must be above the max load and at most 1.");
+		
+		this.compactionThreshold = compactionThreshold;
 	}
 	
-	//********************************************************************************
-	//   YOU MAY, BUT DON'T NEED TO EDIT THINGS IN THIS SECTION
-	// These are some methods we didn't write for you, but you could write,
-	// if you need/want them for building your graph. We will not test
-	// (or grade) these methods.
-	//********************************************************************************
+	/**
+	 * Removes every bunny/tombstone by rehashing the live elements into a table of the same capacity.
+	 * Useful during quiet periods so that later misses do not have to probe through dead slots.
+	 * @return True if the table was compacted, false otherwise.
+	 */
+	public boolean compact() {
+		
+		//The inline array never has bunnies/tombstones.
+		if(numTombstones == 0)
+			return true;
+		
+		return rehash(storage.length);
+	}
 	
 	/**
-	 * {@inheritDoc}
+	 * Compiles the map into an immutable FrozenHashMap, where every lookup reads exactly one slot of a table that is about 99% full.
+	 * Meant for maps that are built once and only read afterward. Later changes to this map do not affect the frozen copy.
+	 * @return The frozen copy of the map.
 	 */
-	public Collection<V> values() {
-		throw new UnsupportedOperationException();
+	public FrozenHashMap<K,V> freeze() {
+		
+		return new FrozenHashMap<>(this);
 	}
 	
 	/**
 	 * {@inheritDoc}
 	 */
-	public void	putAll(Map<? extends K,? extends V> m) {
-		throw new UnsupportedOperationException();
+	public int size() {
+		//return the number of elements in the table
+		//O(1)
+		return numElements;
 	}
 	
 	/**
-	 * {@inheritDoc}
+	 * Method that determines if a value for an element is at the given index.
+	 * @param index The index being tested for legitimacy.
+	 * @return True if the index contains a value, else returns false.
 	 */
-	public boolean containsValue(Object value) {
-		throw new UnsupportedOperationException();
+	private boolean slotContainsValue(int index) {
+		//Private helper method for toString()
+		//O(1)
+		
+		//Returns true if a "real" value is at the index given
+		//Tombstones (and bunnies) are not "real" values in the map.
+		if(storage[index] != null && storage[index].key != null)
+			return true;
+		
+		return false;
 	}
 	
 	/**
 	 * {@inheritDoc}
 	 */
-	public Set<Map.Entry<K,V>> entrySet() {
-		throw new UnsupportedOperationException();
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		//Makes sure the key cannot be null.
+		if(key == null)
+			return null;
+		
+		if(inline != null)
+		{
+			int i = inlineIndex(key);
+			return i < 0 ? null : (V) inline[i + 1];
+		}
+		
+		if(oldStorage != null)
+			migrate(REHASH_STEP);
+		
+		Pair<K, V> pair = getEntry(key);
+		
+		//If the value returned by getEntry is null, then the item is not on the table.
+		if(pair != null)
+			return pair.value;
+		else
+			return null;
 	}
 	
 	/**
-	 * {@inheritDoc}
+	 * Helper method for get, containsKey and the views. Finds the pair of a key in the table, or in the old table if an incremental rehash has not moved it yet.
+	 * @param key The key being looked for, which must not be null.
+	 * @return The pair holding the key, or null if it is not in the map.
 	 */
-	public boolean equals(Object o) {
-		throw new UnsupportedOperationException();
+	private Pair<K, V> getEntry(Object key) {
+		
+		//A key the Bloom filter has never seen is not in either table.
+		if(bloomFilter != null && !bloomFilter.mightContain(key))
+			return null;
+		
+		int hash = hash(key);
+		
+		//Checks to see if the item is directly at the index computed by the hash code.
+		//If not, it iterates through the table's probing sequence.
+		Pair<K, V> pair = getItem(indexFor(hash, storage.length), key, storage);
+		
+		//A key that has not been moved yet is still in the old table.
+		if(pair == null && oldStorage != null)
+			pair = getItem(indexFor(hash, oldStorage.length), key, oldStorage);
+		
+		return pair;
 	}
 	
 	/**
 	 * {@inheritDoc}
 	 */
-	public int hashCode() {
-		throw new UnsupportedOperationException();
+	@SuppressWarnings("unchecked")
+	public V remove(Object key) {
+		//Makes sure the key cannot be null.
+		if(key == null)
+			return null;
+		
+		//A small map moves its last pair into the gap, so the inline pairs stay packed at the front.
+		if(inline != null)
+		{
+			int i = inlineIndex(key);
+			return i < 0 ? null : removeInline(i);
+		}
+		
+		if(oldStorage != null)
+			migrate(REHASH_STEP);
+		
+		if(bloomFilter != null && !bloomFilter.mightContain(key))
+			return null;
+		
+		int hash = hash(key);
+		Pair<K, V> pair;
+		
+		//Checks to see if the item is directly at the index computed by the hash code.
+		//If not, it iterates through the table's probing sequence.
+		pair = getItem(indexFor(hash, storage.length), key, storage);
+		
+		if(pair != null)
+		{
+			V oldVal = pair.value;
+			kill(pair, true);
+			return oldVal;
+		}
+		
+		//A key that has not been moved yet is removed from the old table.
+		pair = oldEntry(key, hash);
+		if(pair != null)
+		{
+			V oldVal = pair.value;
+			kill(pair, false);
+			return oldVal;
+		}
+		
+		return null;
 	}
 	
 	/**
 	 * {@inheritDoc}
+	 * The key and the slot it would be inserted into are found in a single pass through the probing sequence.
 	 */
-	public boolean containsKey(Object key) {
-		throw new UnsupportedOperationException();
+	@SuppressWarnings("unchecked")
+	public V put(K key, V value) {
+		if(key == null)
+			throw new NullPointerException("The key cannot be null.");
+		
+		if(inline != null)
+		{
+			int i = inlineIndex(key);
+			if(i >= 0)
+			{
+				V oldVal = (V) inline[i + 1];
+				inline[i + 1] = value;
+				return oldVal;
+			}
+			
+			if(numElements < INLINE_CAPACITY)
+			{
+				inline[2 * numElements] = key;
+				inline[2 * numElements + 1] = value;
+				numElements++;
+				modCount++;
+				return null;
+			}
+			
+			//The inline array is full, so the pairs move into the table and the new key follows them there.
+			inflate();
+		}
+		
+		if(oldStorage != null)
+			migrate(REHASH_STEP);
+		
+		int hash = hash(key);
+		int slot = probe(key, hash);
+		
+		//If the key is already in the table (or still in the old table), only its value is updated.
+		Pair<K, V> pair = slot >= 0 ? storage[slot] : oldEntry(key, hash);
+		if(pair != null)
+		{
+			V oldVal = pair.value;
+			pair.value = value;
+			return oldVal;
+		}
+		
+		insert(slot, key, hash, value);
+		return null;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("unchecked")
+	public V getOrDefault(Object key, V defaultValue) {
+		
+		if(key == null)
+			return defaultValue;
+		
+		if(inline != null)
+		{
+			int i = inlineIndex(key);
+			return i < 0 ? defaultValue : (V) inline[i + 1];
+		}
+		
+		if(oldStorage != null)
+			migrate(REHASH_STEP);
+		
+		Pair<K, V> pair = getEntry(key);
+		return pair != null ? pair.value : defaultValue;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * Takes a single pass through the probing sequence.
+	 */
+	@SuppressWarnings("unchecked")
+	public V putIfAbsent(K key, V value) {
+		if(key == null)
+			throw new NullPointerException("The key cannot be null.");
+		
+		//A small map scans its inline array, and put only moves it to the table if the key would be a ninth one.
+		if(inline != null)
+		{
+			int i = inlineIndex(key);
+			if(i < 0)
+			{
+				put(key, value);
+				return null;
+			}
+			
+			V oldVal = (V) inline[i + 1];
+			if(oldVal == null)
+				inline[i + 1] = value;
+			
+			return oldVal;
+		}
+		
+		if(oldStorage != null)
+			migrate(REHASH_STEP);
+		
+		int hash = hash(key);
+		int slot = probe(key, hash);
+		Pair<K, V> pair = slot >= 0 ? storage[slot] : oldEntry(key, hash);
+		
+		if(pair != null)
+		{
+			//A key mapped to null counts as absent.
+			V oldVal = pair.value;
+			if(oldVal == null)
+				pair.value = value;
+			
+			return oldVal;
+		}
+		
+		insert(slot, key, hash, value);
+		return null;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * Takes a single pass through the probing sequence, and the slot found is reused to insert the computed value.
+	 * @throws ConcurrentModificationException if the function changes the structure of the map.
+	 */
+	@SuppressWarnings("unchecked")
+	public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+		if(key == null || mappingFunction == null)
+			throw new NullPointerException("The key and function cannot be null.");
+		
+		if(inline != null)
+		{
+			int i = inlineIndex(key);
+			if(i >= 0 && inline[i + 1] != null)
+				return (V) inline[i + 1];
+			
+			int expectedModCount = modCount;
+			V value = mappingFunction.apply(key);
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			
+			if(value != null)
+				storeInline(i, key, value);
+			
+			return value;
+		}
+		
+		if(oldStorage != null)
+			migrate(REHASH_STEP);
+		
+		int hash = hash(key);
+		int slot = probe(key, hash);
+		Pair<K, V> pair = slot >= 0 ? storage[slot] : oldEntry(key, hash);
+		
+		if(pair != null && pair.value != null)
+			return pair.value;
+		
+		int expectedModCount = modCount;
+		int expectedMoveCount = moveCount;
+		V value = mappingFunction.apply(key);
+		if(modCount != expectedModCount)
+			throw new ConcurrentModificationException();
+		
+		//A get in the function may have taken an incremental rehash step, which can move the pair or fill the open slot, so the key is looked up again.
+		if(moveCount != expectedMoveCount)
+		{
+			slot = probe(key, hash);
+			pair = slot >= 0 ? storage[slot] : oldEntry(key, hash);
+		}
+		
+		//A null result records nothing.
+		if(value == null)
+			return null;
+		
+		if(pair != null)
+			pair.value = value;
+		else
+			insert(slot, key, hash, value);
+		
+		return value;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * Takes a single pass through the probing sequence.
+	 * @throws ConcurrentModificationException if the function changes the structure of the map.
+	 */
+	@SuppressWarnings("unchecked")
+	public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		if(key == null || remappingFunction == null)
+			throw new NullPointerException("The key and function cannot be null.");
+		
+		if(inline != null)
+		{
+			int i = inlineIndex(key);
+			if(i < 0 || inline[i + 1] == null)
+				return null;
+			
+			int expectedModCount = modCount;
+			V value = remappingFunction.apply(key, (V) inline[i + 1]);
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			
+			return remapInline(i, value);
+		}
+		
+		if(oldStorage != null)
+			migrate(REHASH_STEP);
+		
+		int hash = hash(key);
+		int slot = probe(key, hash);
+		Pair<K, V> pair = slot >= 0 ? storage[slot] : oldEntry(key, hash);
+		
+		if(pair == null || pair.value == null)
+			return null;
+		
+		int expectedModCount = modCount;
+		int expectedMoveCount = moveCount;
+		V value = remappingFunction.apply(key, pair.value);
+		if(modCount != expectedModCount)
+			throw new ConcurrentModificationException();
+		
+		//A get in the function may have taken an incremental rehash step, which can move the pair or fill the open slot, so the key is looked up again.
+		if(moveCount != expectedMoveCount)
+		{
+			slot = probe(key, hash);
+			pair = slot >= 0 ? storage[slot] : oldEntry(key, hash);
+		}
+		
+		return remap(pair, slot >= 0, value);
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * Takes a single pass through the probing sequence, and the slot found is reused to insert the computed value.
+	 * @throws ConcurrentModificationException if the function changes the structure of the map.
+	 */
+	@SuppressWarnings("unchecked")
+	public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+		if(key == null || remappingFunction == null)
+			throw new NullPointerException("The key and function cannot be null.");
+		
+		if(inline != null)
+		{
+			int i = inlineIndex(key);
+			
+			int expectedModCount = modCount;
+			V value = remappingFunction.apply(key, i < 0 ? null : (V) inline[i + 1]);
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			
+			if(i >= 0)
+				return remapInline(i, value);
+			
+			if(value != null)
+				storeInline(i, key, value);
+			
+			return value;
+		}
+		
+		if(oldStorage != null)
+			migrate(REHASH_STEP);
+		
+		int hash = hash(key);
+		int slot = probe(key, hash);
+		Pair<K, V> pair = slot >= 0 ? storage[slot] : oldEntry(key, hash);
+		
+		int expectedModCount = modCount;
+		int expectedMoveCount = moveCount;
+		V value = remappingFunction.apply(key, pair == null ? null : pair.value);
+		if(modCount != expectedModCount)
+			throw new ConcurrentModificationException();
+		
+		//A get in the function may have taken an incremental rehash step, which can move the pair or fill the open slot, so the key is looked up again.
+		if(moveCount != expectedMoveCount)
+		{
+			slot = probe(key, hash);
+			pair = slot >= 0 ? storage[slot] : oldEntry(key, hash);
+		}
+		
+		if(pair != null)
+			return remap(pair, slot >= 0, value);
+		
+		if(value != null)
+			insert(slot, key, hash, value);
+		
+		return value;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * Takes a single pass through the probing sequence, and the slot found is reused to insert the value.
+	 * @throws ConcurrentModificationException if the function changes the structure of the map.
+	 */
+	@SuppressWarnings("unchecked")
+	public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+		if(key == null || value == null || remappingFunction == null)
+			throw new NullPointerException("The key, value and function cannot be null.");
+		
+		if(inline != null)
+		{
+			int i = inlineIndex(key);
+			if(i < 0 || inline[i + 1] == null)
+			{
+				storeInline(i, key, value);
+				return value;
+			}
+			
+			int expectedModCount = modCount;
+			V newValue = remappingFunction.apply((V) inline[i + 1], value);
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			
+			return remapInline(i, newValue);
+		}
+		
+		if(oldStorage != null)
+			migrate(REHASH_STEP);
+		
+		int hash = hash(key);
+		int slot = probe(key, hash);
+		Pair<K, V> pair = slot >= 0 ? storage[slot] : oldEntry(key, hash);
+		
+		if(pair == null)
+		{
+			insert(slot, key, hash, value);
+			return value;
+		}
+		
+		if(pair.value == null)
+		{
+			pair.value = value;
+			return value;
+		}
+		
+		int expectedModCount = modCount;
+		int expectedMoveCount = moveCount;
+		V newValue = remappingFunction.apply(pair.value, value);
+		if(modCount != expectedModCount)
+			throw new ConcurrentModificationException();
+		
+		//A get in the function may have taken an incremental rehash step, which can move the pair or fill the open slot, so the key is looked up again.
+		if(moveCount != expectedMoveCount)
+		{
+			slot = probe(key, hash);
+			pair = slot >= 0 ? storage[slot] : oldEntry(key, hash);
+		}
+		
+		return remap(pair, slot >= 0, newValue);
+	}
+	
+	/**
+	 * Helper method for the compute and merge methods of a small map that stores a value for a key.
+	 * A new key goes through put, which only moves the pairs to the table if the key would be a ninth one.
+	 * @param i The index of the key in the inline array, or -1 if it is not there.
+	 * @param key The key.
+	 * @param value The new value.
+	 */
+	private void storeInline(int i, K key, V value) {
+		
+		if(i >= 0)
+			inline[i + 1] = value;
+		else
+			put(key, value);
+	}
+	
+	/**
+	 * Helper method for the compute and merge methods of a small map that stores a new value in an inline pair, or removes the pair if the value is null.
+	 * @param i The index of the key in the inline array.
+	 * @param value The new value.
+	 * @return The new value.
+	 */
+	private V remapInline(int i, V value) {
+		
+		if(value == null)
+			removeInline(i);
+		else
+			inline[i + 1] = value;
+		
+		return value;
+	}
+	
+	/**
+	 * Helper method for the compute and merge methods that stores a new value in an existing pair, or removes the pair if the value is null.
+	 * @param pair The pair holding the key.
+	 * @param inTable True if the pair is in storage, false if it is still in the old table of an incremental rehash.
+	 * @param value The new value.
+	 * @return The new value.
+	 */
+	private V remap(Pair<K, V> pair, boolean inTable, V value) {
+		
+		if(value == null)
+			kill(pair, inTable);
+		else
+			pair.value = value;
+		
+		return value;
+	}
+	
+	/**
+	 * Turns a pair into a bunny/tombstone by making its key null, and releases its value so the tombstone does not keep it reachable.
+	 * @param pair The pair being removed.
+	 * @param inTable True if the pair is in storage and must be counted as a tombstone.
+	 * A pair in the old table of an incremental rehash is not counted, since that table is dropped once the rehash finishes.
+	 */
+	private void kill(Pair<K, V> pair, boolean inTable) {
+		
+		if(bloomFilter != null)
+			bloomFilter.remove(pair.key);
+		
+		pair.key = null;
+		pair.value = null;
+		numElements--;
+		modCount++;
+		
+		if(inTable)
+			numTombstones++;
+	}
+	
+	/**
+	 * Helper method that looks a key up in the old table of an incremental rehash.
+	 * @param key The key being looked for.
+	 * @param hash The mixed hash code of the key.
+	 * @return The pair holding the key in the old table, or null if there is no old table or the key is not in it.
+	 */
+	private Pair<K, V> oldEntry(Object key, int hash) {
+		
+		if(oldStorage == null)
+			return null;
+		
+		return getItem(indexFor(hash, oldStorage.length), key, oldStorage);
+	}
+	
+	/**
+	 * Walks the probing sequence of a key once, looking both for the key and for the first slot a new pair could use.
+	 * The first bunny/tombstone on the way is remembered, so an insertion reuses it instead of extending the chain.
+	 * @param key The key being looked for.
+	 * @param hash The mixed hash code of the key.
+	 * @return The slot of the key if it is in the table. Otherwise -(slot + 1) for the first reusable slot, or NO_SLOT if the sequence reached none.
+	 */
+	private int probe(Object key, int hash) {
+		
+		int mask = storage.length - 1;
+		int index = indexFor(hash, storage.length);
+		int check = index;
+		int open = -1;
+		
+		for(int i = 1; i <= storage.length; i++)
+		{
+			Pair<K, V> pair = storage[check];
+			
+			if(pair == null)
+			{
+				if(open < 0)
+				{
+					open = check;
+					lastProbeLength = i;
+				}
+				break;
+			}
+			else if(pair.key == null)
+			{
+				if(open < 0)
+				{
+					open = check;
+					lastProbeLength = i;
+				}
+			}
+			else if(key.equals(pair.key))
+				return check;
+			
+			check = probeStrategy.next(index, check, i, mask);
+		}
+		
+		return open < 0 ? NO_SLOT : -(open + 1);
+	}
+	
+	/**
+	 * Places a new pair for a key that is in neither table, using the slot found by probe.
+	 * Then grows, compacts or reseeds the table if the insertion calls for it.
+	 * @param slot The value returned by probe for the key.
+	 * @param key The key being added.
+	 * @param hash The mixed hash code of the key.
+	 * @param value The value stored with the key.
+	 * @return True if the pair was added, false if the table could not grow to make room for it.
+	 */
+	private boolean insert(int slot, K key, int hash, V value) {
+		
+		//Quadratic probing cannot reach every slot, so the table grows until the sequence reaches an open one.
+		while(slot == NO_SLOT)
+		{
+			if(!rehash(storage.length * 2))
+				return false;
+			
+			slot = findNext(indexFor(hash, storage.length), storage);
+			slot = slot < 0 ? NO_SLOT : -(slot + 1);
+		}
+		
+		int open = -(slot + 1);
+		
+		//Remembered before any rehash below runs findNext again.
+		int probeLength = lastProbeLength;
+		
+		//Reusing a bunny/tombstone takes it out of the count.
+		if(storage[open] != null)
+			numTombstones--;
+		
+		//The new pair is placed at the open slot.
+		storage[open] = new Pair<K, V>(key, value);
+		numElements++;
+		modCount++;
+		
+		//The filter is rebuilt larger once the map holds more keys than it was sized for, so its false positive rate stays near the target.
+		if(bloomFilter != null)
+		{
+			if(numElements > bloomFilter.expectedInsertions())
+				rebuildBloomFilter(numElements * 2);
+			else
+				bloomFilter.add(key);
+		}
+		
+		//Rehashes if after adding, the table's load is greater than max load.
+		//In incremental mode only the new array is allocated here, and the elements follow over the next operations.
+		if((numElements / (float)(storage.length)) > maxLoad)
+		{
+			if(incrementalRehash)
+				startRehash(storage.length * 2);
+			else
+				rehash(storage.length * 2);
+		}
+		//Compacts in place if the live elements and the bunnies/tombstones together are over the threshold.
+		//Misses probe through dead slots just like live ones, so they count toward how full the table really is.
+		else if(((numElements + numTombstones) / (double)(storage.length)) > compactionThreshold)
+			compact();
+		
+		//An abnormally long probe sequence means the keys are clustering under the current seed, so a new one is picked.
+		//The table must have taken as many insertions as it holds since the last reseed, which keeps the cost amortized and
+		//stops keys with equal hash codes (which no seed can separate) from triggering a rehash on every insertion.
+		if(insertionsSinceReseed < numElements)
+			insertionsSinceReseed++;
+		else if(probeLength > longProbeLimit())
+			reseed();
+		
+		return true;
+	}
+	
+	/**
+	 * Increases or decreases the size of the map to the smallest power of two larger than the requested size, and moves all elements to their new locations relative to the new size.
+	 * @param size The requested size for the hash table.
+	 * @return True if rehashing was successful, false otherwise.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public boolean rehash(int size) {
+		
+		inflate();
+		
+		//Calculates the new size of the table as a power of 2.
+		int newSize = tableSizeFor(size);
+		
+		//Returns false if the new size would increase the load.
+		if((numElements / (float)(newSize)) > maxLoad)
+			return false;
+		
+		//New array that will be getting the items in old storage.
+		Pair<K, V> [] newStorage = (Pair<K, V>[]) new Pair[newSize];
+		
+		//If the probing sequence cannot place every element, the new table is doubled and the move is attempted again.
+		//Elements still waiting in the old table of an incremental rehash are moved along with the rest.
+		while(!transfer(storage, newStorage) || (oldStorage != null && !transfer(oldStorage, newStorage)))
+		{
+			if(newStorage.length == MAXIMUM_CAPACITY)
+				return false;
+			
+			newStorage = (Pair<K, V>[]) new Pair[newStorage.length * 2];
+		}
+		
+		//Sets storage to the new array so that it can now reference the new table.
+		//Bunnies/tombstones are never moved, so the new table has none.
+		storage = newStorage;
+		oldStorage = null;
+		numTombstones = 0;
+		modCount++;
+		
+		return true;
+	}
+	
+	/**
+	 * Starts an incremental rehash by making the current table the old one and allocating an empty table of the requested size.
+	 * A rehash that is already in progress is finished first.
+	 * @param size The requested size for the new table.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private void startRehash(int size) {
+		
+		finishRehash();
+		
+		oldStorage = storage;
+		storage = (Pair<K, V>[]) new Pair[tableSizeFor(size)];
+		migrateIndex = 0;
+		modCount++;
+		
+		//The bunnies/tombstones stay behind in the old table.
+		numTombstones = 0;
+	}
+	
+	/**
+	 * Moves up to the given number of old slots into the new table during an incremental rehash.
+	 * A moved slot is replaced with MOVED rather than null, so keys further along an old probing sequence can still be found.
+	 * @param slots The number of old slots to move.
+	 */
+	@SuppressWarnings("unchecked")
+	private void migrate(int slots) {
+		
+		int end = Math.min(oldStorage.length, migrateIndex + slots);
+		
+		//Moving pairs can fill slots that a caller has already found open, but it leaves the map's contents unchanged.
+		moveCount++;
+		
+		for(; migrateIndex < end; migrateIndex++)
+		{
+			Pair<K, V> pair = oldStorage[migrateIndex];
+			
+			if(pair == null || pair.key == null)
+				continue;
+			
+			int slot = findNext(indexFor(hash(pair.key), storage.length), storage);
+			
+			//Quadratic probing could not reach an open slot, so everything left is moved at once into a larger table.
+			if(slot < 0)
+			{
+				//The pairs only change tables here too, so the full rehash is not counted as a structural change.
+				int expectedModCount = modCount;
+				rehash(storage.length * 2);
+				modCount = expectedModCount;
+				return;
+			}
+			
+			if(storage[slot] != null)
+				numTombstones--;
+			
+			storage[slot] = pair;
+			oldStorage[migrateIndex] = (Pair<K, V>) MOVED;
+		}
+		
+		//The old table is dropped once every slot has been moved.
+		if(migrateIndex == oldStorage.length)
+			oldStorage = null;
+	}
+	
+	/**
+	 * Helper method for rehash that moves every live pair of one array into another.
+	 * @param from The array being emptied.
+	 * @param to The array receiving the pairs.
+	 * @return True if every pair was placed, false if the probing sequence ran out of slots.
+	 */
+	private boolean transfer(Pair<K, V> [] from, Pair<K, V> [] to) {
+		
+		//Large tables are split across the common fork/join pool when parallel rehashing is on.
+		if(parallelRehash && from.length >= parallelRehashThreshold)
+			return ForkJoinPool.commonPool().invoke(new TransferTask(from, to, 0, from.length));
+		
+		int newIndex;
+		
+		//Iterates from the start of storage to length - 1.
+		for(int i = 0; i < from.length; i++)
+		{
+			//Checks to see if the item at the index i is either null or a bunny/tombstone.
+			//If it is, they are skipped
+			if(from[i] == null || from[i].key == null)
+				continue;
+			
+			//Computes a new hash with the new table size.
+			newIndex = indexFor(hash(from[i].key), to.length);
+			
+			//Finds the next open slot in the new array.
+			newIndex = findNext(newIndex, to);
+			if(newIndex < 0)
+				return false;
+			
+			to[newIndex] = from[i];
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * Helper method for parallel rehash tasks that places a pair in the first empty slot of its probing sequence.
+	 * The new table only ever holds nulls and pairs, so a slot is claimed by swapping a null for the pair, and a task that loses the race moves on to the next slot.
+	 * @param pair The pair being placed.
+	 * @param to The array receiving the pair.
+	 * @return True if the pair was placed, false if the probing sequence ran out of slots.
+	 */
+	private boolean place(Pair<K, V> pair, Pair<K, V> [] to) {
+		
+		int mask = to.length - 1;
+		int index = indexFor(hash(pair.key), to.length);
+		int check = index;
+		
+		for(int i = 1; i <= to.length; i++)
+		{
+			if(to[check] == null && SLOT.compareAndSet(to, check, null, pair))
+				return true;
+			
+			check = probeStrategy.next(index, check, i, mask);
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * Runs a key's hash code through the mixing stage with this table's seed.
+	 * @param key The key being hashed.
+	 * @return The mixed hash code.
+	 */
+	private int hash(Object key) {
+		
+		return mixer.mix(key.hashCode(), seed);
+	}
+	
+	/**
+	 * Computes how many probe steps an insertion may take before the table considers the sequence abnormally long.
+	 * At the max load the expected sequence is a few steps, so anything beyond a small multiple of log2(capacity) points to clustering.
+	 * @return The probe length that triggers a reseed.
+	 */
+	private int longProbeLimit() {
+		
+		return 8 + 2 * Integer.numberOfTrailingZeros(storage.length);
+	}
+	
+	/**
+	 * Computes the smallest power of two that is greater than or equal to the requested size.
+	 * @param size The requested size of a table.
+	 * @return The power of two used as the table length.
+	 */
+	static int tableSizeFor(int size) {
+		
+		int n = 1;
+		while(n < size && n < MAXIMUM_CAPACITY)
+			n <<= 1;
+		
+		return n;
+	}
+	
+	/**
+	 * Maps a hash code onto a slot of a power-of-two table with a mask instead of a remainder.
+	 * @param hash The hash code of the key.
+	 * @param length The length of the table, which must be a power of two.
+	 * @return The home slot of the hash code.
+	 */
+	static int indexFor(int hash, int length) {
+		
+		return hash & (length - 1);
+	}
+	
+	/**
+	 * Helper method used by put and rehash to find the next open slot in the table.
+	 * The probing sequence is cut off after as many steps as there are slots, so it always ends.
+	 * @param index The original index produced by the hash function.
+	 * @param arr The array being searched.
+	 * @return The index of the next open slot in the probing sequence, or -1 if none was reached.
+	 */
+	private int findNext(int index, Pair<K, V> [] arr)
+	{
+		int mask = arr.length - 1;
+		int check = index;
+
+		for(int i = 1; i <= arr.length; i++)
+		{	
+			//Checks if the slot is empty or holds a bunny/tombstone.
+			//If it is, then we return this index because bunnies/tombstones can be overwritten.
+			if(arr[check] == null || arr[check].key == null)
+			{
+				lastProbeLength = i;
+				return check;
+			}
+			
+			check = probeStrategy.next(index, check, i, mask);
+		}
+		
+		return -1;
+	}
+	
+	/**
+	 * Helper method for get, remove and put. It finds the value at the key or returns null if not found.
+	 * The probing sequence is cut off after as many steps as there are slots, so it always ends.
+	 * @param index The starting index to search.
+	 * @param key The key being compared.
+	 * @param arr The array being iterated through.
+	 * @return The pair at the location found in the probing sequence.
+	 */
+	private Pair<K, V> getItem(int index, Object key, Pair<K, V> [] arr)
+	{
+		int mask = arr.length - 1;
+		int check = index;
+		
+		//Iterates through the probing sequence until either the element is found or a null appears.
+		//If a null appears after a probing step, then the item is not on the list.
+		for(int i = 1; i <= arr.length && arr[check] != null; i++)
+		{
+			//Checks if the key matches an item in the list.
+			if(key.equals(arr[check].key))
+				return arr[check];
+			
+			check = probeStrategy.next(index, check, i, mask);
+		}
+		
+		return null;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	public String toString() {
+		
+		return toString(false);
+	}
+	
+	/**
+	 * Overloaded toString method that creates the string of the map based on the locations of the items in the map.
+	 * @param showEmpty Boolean value used to compare if an item is in the map or not.
+	 * @return The newly constructed string.
+	 */
+	public String toString(boolean showEmpty) {
+		
+		StringBuilder s = new StringBuilder();
+		
+		//A small map lists the slots of its inline array.
+		if(inline != null)
+		{
+			for(int i = 0; i < INLINE_CAPACITY; i++) {
+				if(showEmpty || i < numElements)  {
+					s.append("[");
+					s.append(i);
+					s.append("]: ");
+					s.append(i < numElements ? "<" + inline[2 * i] + "," + inline[2 * i + 1] + ">" : null);
+					s.append("\n");
+				}
+			}
+			if(s.length() > 0)
+				s.deleteCharAt(s.length()-1);
+			return s.toString();
+		}
+		
+		finishRehash();
+		for(int i = 0; i < storage.length; i++) {
+			if(showEmpty || slotContainsValue(i))  {
+				s.append("[");
+				s.append(i);
+				s.append("]: ");
+				s.append(storage[i]);
+				s.append("\n");
+			}
+		}
+		s.deleteCharAt(s.length()-1);
+		return s.toString();
+	}
+
+	/**
+	 * Converts the map into an array.
+	 * @return The array version of the map.
+	 */
+	@SuppressWarnings("unchecked")
+	public Object[] toArray() {
+		
+		Pair<K,V>[] ret = (Pair<K,V>[]) new Pair[numElements];
+		if(inline != null)
+		{
+			for(int j = 0; j < numElements; j++)
+				ret[j] = new Pair<>((K) inline[2 * j], (V) inline[2 * j + 1]);
+			return (Object[]) ret;
+		}
+		
+		finishRehash();
+		for(int i = 0, j = 0; i < storage.length; i++) {
+			if(slotContainsValue(i)) {
+				ret[j++] = new Pair<>(storage[i].key, storage[i].value);
+			}
+		}
+		return (Object[]) ret;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * The set is a live view backed by the table, so it is never copied and reflects later changes to the map.
+	 */
+	public Set<K> keySet() {
+		
+		if(keySetView == null)
+			keySetView = new KeySet();
+		
+		return keySetView;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * The collection is a live view backed by the table, so it is never copied and reflects later changes to the map.
+	 */
+	public Collection<V> values() {
+		
+		if(valuesView == null)
+			valuesView = new Values();
+		
+		return valuesView;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * The set is a live view backed by the table. Its entries are the pairs stored in the slots, so iterating allocates nothing per entry
+	 * and setValue writes straight through to the map.
+	 */
+	public Set<Map.Entry<K,V>> entrySet() {
+		
+		if(entrySetView == null)
+			entrySetView = new EntrySet();
+		
+		return entrySetView;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * Takes a single walk through the probing sequence of the key.
+	 */
+	public boolean containsKey(Object key) {
+		
+		if(key == null)
+			return false;
+		
+		if(inline != null)
+			return inlineIndex(key) >= 0;
+		
+		if(oldStorage != null)
+			migrate(REHASH_STEP);
+		
+		return getEntry(key) != null;
+	}
+	
+	/**
+	 * Looks up many keys at once and writes their values into an array.
+	 * The hashes of a group of keys are computed first, then every key of the group takes one probe step per round,
+	 * so the memory loads of different keys are in flight at the same time instead of one after another.
+	 * During an incremental rehash the keys are looked up one by one.
+	 * @param keys The keys being looked up. A null key is never found.
+	 * @param out The array receiving the value of each key, or null for a key that is not in the map.
+	 * @return The number of keys found.
+	 * @throws IllegalArgumentException if out is shorter than keys.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public int getAll(K[] keys, V[] out) {
+		
+		if(out.length < keys.length)
+			throw new IllegalArgumentException("The output array is shorter than the key array.");
+		
+		int found = 0;
+		
+		//A small map has no probing to interleave, so each key is a scan of the inline array.
+		if(inline != null)
+		{
+			for(int i = 0; i < keys.length; i++)
+			{
+				int j = keys[i] == null ? -1 : inlineIndex(keys[i]);
+				out[i] = j < 0 ? null : (V) inline[j + 1];
+				found += j < 0 ? 0 : 1;
+			}
+			
+			return found;
+		}
+		
+		//Both tables would have to be probed, so the batch gives way to the single key path, which also moves the rehash along.
+		if(oldStorage != null)
+		{
+			for(int i = 0; i < keys.length; i++)
+			{
+				Pair<K, V> pair = null;
+				if(keys[i] != null)
+				{
+					if(oldStorage != null)
+						migrate(REHASH_STEP);
+					pair = getEntry(keys[i]);
+				}
+				
+				out[i] = pair == null ? null : pair.value;
+				found += pair == null ? 0 : 1;
+			}
+			
+			return found;
+		}
+		
+		Pair<K, V> [] pairs = (Pair<K, V>[]) new Pair[BATCH_GROUP];
+		int[] home = new int[BATCH_GROUP];
+		int[] check = new int[BATCH_GROUP];
+		int[] active = new int[BATCH_GROUP];
+		
+		for(int from = 0; from < keys.length; from += BATCH_GROUP)
+		{
+			int to = Math.min(keys.length, from + BATCH_GROUP);
+			findGroup(keys, from, to, pairs, home, check, active);
+			
+			for(int i = from; i < to; i++)
+			{
+				Pair<K, V> pair = pairs[i - from];
+				out[i] = pair == null ? null : pair.value;
+				found += pair == null ? 0 : 1;
+			}
+		}
+		
+		return found;
+	}
+	
+	/**
+	 * Checks many keys at once, with the same interleaved probing as getAll.
+	 * @param keys The keys being looked for. A null key is never found.
+	 * @param out The array receiving true for each key in the map, false otherwise.
+	 * @return The number of keys found.
+	 * @throws IllegalArgumentException if out is shorter than keys.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public int containsKeys(Object[] keys, boolean[] out) {
+		
+		if(out.length < keys.length)
+			throw new IllegalArgumentException("The output array is shorter than the key array.");
+		
+		int found = 0;
+		
+		//Both a small map and a map in the middle of an incremental rehash check the keys one by one.
+		if(inline != null || oldStorage != null)
+		{
+			for(int i = 0; i < keys.length; i++)
+			{
+				out[i] = containsKey(keys[i]);
+				found += out[i] ? 1 : 0;
+			}
+			
+			return found;
+		}
+		
+		Pair<K, V> [] pairs = (Pair<K, V>[]) new Pair[BATCH_GROUP];
+		int[] home = new int[BATCH_GROUP];
+		int[] check = new int[BATCH_GROUP];
+		int[] active = new int[BATCH_GROUP];
+		
+		for(int from = 0; from < keys.length; from += BATCH_GROUP)
+		{
+			int to = Math.min(keys.length, from + BATCH_GROUP);
+			findGroup(keys, from, to, pairs, home, check, active);
+			
+			for(int i = from; i < to; i++)
+			{
+				out[i] = pairs[i - from] != null;
+				found += out[i] ? 1 : 0;
+			}
+		}
+		
+		return found;
+	}
+	
+	/**
+	 * Helper method for getAll and containsKeys that finds the pairs of a group of keys in storage.
+	 * Every round takes one probe step for each key still being looked for, and a key drops out once it is found or reaches an empty slot.
+	 * It must only be called when no incremental rehash is in progress.
+	 * @param keys The keys being looked for.
+	 * @param from The first key of the group.
+	 * @param to The key just past the end of the group, at most BATCH_GROUP after from.
+	 * @param pairs The array receiving the pair of each key of the group, or null for a key that is not in the map.
+	 * @param home Scratch array for the home slot of each key of the group.
+	 * @param check Scratch array for the slot each key of the group reads next.
+	 * @param active Scratch array for the keys of the group still being looked for.
+	 */
+	private void findGroup(Object[] keys, int from, int to, Pair<K, V> [] pairs, int[] home, int[] check, int[] active) {
+		
+		int n = to - from;
+		int mask = storage.length - 1;
+		int numActive = 0;
+		
+		//All the hashes of the group are computed before any slot is read.
+		for(int j = 0; j < n; j++)
+		{
+			Object key = keys[from + j];
+			pairs[j] = null;
+			
+			if(key == null || (bloomFilter != null && !bloomFilter.mightContain(key)))
+				continue;
+			
+			home[j] = indexFor(hash(key), storage.length);
+			check[j] = home[j];
+			active[numActive++] = j;
+		}
+		
+		//Each round reads one slot per remaining key, and those reads do not depend on each other.
+		for(int step = 1; numActive > 0 && step <= storage.length; step++)
+		{
+			int kept = 0;
+			
+			for(int a = 0; a < numActive; a++)
+			{
+				int j = active[a];
+				Pair<K, V> pair = storage[check[j]];
+				
+				if(pair == null)
+					continue;
+				
+				if(keys[from + j].equals(pair.key))
+				{
+					pairs[j] = pair;
+					continue;
+				}
+				
+				check[j] = probeStrategy.next(home[j], check[j], step, mask);
+				active[kept++] = j;
+			}
+			
+			numActive = kept;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean containsValue(Object value) {
+		
+		if(inline != null)
+		{
+			for(int i = 0; i < numElements; i++)
+			{
+				if(Objects.equals(value, inline[2 * i + 1]))
+					return true;
+			}
+			
+			return false;
+		}
+		
+		return containsValue(value, storage) || (oldStorage != null && containsValue(value, oldStorage));
+	}
+	
+	/**
+	 * Helper method for containsValue that scans one table.
+	 * @param value The value being looked for.
+	 * @param arr The table being scanned.
+	 * @return True if a live pair in the table has the value, false otherwise.
+	 */
+	private boolean containsValue(Object value, Pair<K, V> [] arr) {
+		
+		for(int i = 0; i < arr.length; i++)
+		{
+			if(arr[i] != null && arr[i].key != null && Objects.equals(value, arr[i].value))
+				return true;
+		}
+		
+		return false;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 * The table is grown once up front to hold every pair of the other map, so no rehash happens while they are added.
+	 */
+	public void	putAll(Map<? extends K,? extends V> m) {
+		
+		//Sizes for the worst case where none of the keys are in this map yet.
+		//A small map only moves to the table if the new pairs could overflow the inline array.
+		long required = (long) numElements + m.size();
+		if(inline != null && required > INLINE_CAPACITY)
+			inflate();
+		if(inline == null && required / (double) storage.length > maxLoad)
+			rehash((int) Math.min(MAXIMUM_CAPACITY, (long) Math.ceil(required / maxLoad)));
+		
+		for(Map.Entry<? extends K,? extends V> e : m.entrySet())
+			put(e.getKey(), e.getValue());
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean equals(Object o) {
+		
+		if(o == this)
+			return true;
+		if(!(o instanceof Map))
+			return false;
+		
+		Map<?,?> m = (Map<?,?>) o;
+		if(m.size() != numElements)
+			return false;
+		
+		for(Map.Entry<K,V> e : entrySet())
+		{
+			V value = e.getValue();
+			
+			if(value == null ? !(m.get(e.getKey()) == null && m.containsKey(e.getKey())) : !value.equals(m.get(e.getKey())))
+				return false;
+		}
+		
+		return true;
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	public int hashCode() {
+		
+		int h = 0;
+		for(Map.Entry<K,V> e : entrySet())
+			h += e.hashCode();
+		
+		return h;
+	}
+	
+	/**
+	 * Fork/join task that moves the pairs of a range of old slots into a new table.
+	 * A range larger than PARALLEL_CHUNK is split in half, and the two halves run in parallel.
+	 */
+	private class TransferTask extends RecursiveTask<Boolean> {
+		
+		/**
+		 * Serialization version, since RecursiveTask is serializable.
+		 */
+		private static final long serialVersionUID = 1L;
+		
+		/**
+		 * The array being emptied.
+		 */
+		private final Pair<K, V> [] from;
+		
+		/**
+		 * The array receiving the pairs.
+		 */
+		private final Pair<K, V> [] to;
+		
+		/**
+		 * The first old slot of the range.
+		 */
+		private final int lo;
+		
+		/**
+		 * The old slot just past the end of the range.
+		 */
+		private final int hi;
+		
+		/**
+		 * Constructor that creates a task for a range of old slots.
+		 * @param from The array being emptied.
+		 * @param to The array receiving the pairs.
+		 * @param lo The first old slot of the range.
+		 * @param hi The old slot just past the end of the range.
+		 */
+		TransferTask(Pair<K, V> [] from, Pair<K, V> [] to, int lo, int hi) {
+			
+			this.from = from;
+			this.to = to;
+			this.lo = lo;
+			this.hi = hi;
+		}
+		
+		/**
+		 * Moves the range, or splits it and waits for both halves.
+		 * @return True if every pair of the range was placed, false if a probing sequence ran out of slots.
+		 */
+		protected Boolean compute() {
+			
+			if(hi - lo > PARALLEL_CHUNK)
+			{
+				int mid = (lo + hi) >>> 1;
+				TransferTask left = new TransferTask(from, to, lo, mid);
+				left.fork();
+				boolean right = new TransferTask(from, to, mid, hi).compute();
+				return left.join() && right;
+			}
+			
+			for(int i = lo; i < hi; i++)
+			{
+				//Bunnies/tombstones are never moved.
+				if(from[i] != null && from[i].key != null && !place(from[i], to))
+					return false;
+			}
+			
+			return true;
+		}
+	}
+	
+	/**
+	 * Iterator over the live pairs of the table, or of the inline array of a small map.
+	 * Any incremental rehash is finished first so that there is a single table to walk.
+	 * @param <E> The type of element returned by the iterator.
+	 */
+	private abstract class TableIterator<E> implements Iterator<E> {
+		
+		/**
+		 * The table being walked, or null if the map was small when the iterator was created.
+		 */
+		private final Pair<K, V> [] table;
+		
+		/**
+		 * The index of the next live pair, or the table length if there is none.
+		 */
+		private int next = 0;
+		
+		/**
+		 * The pair returned by the last call to next, or null if it was removed.
+		 */
+		private Pair<K, V> current;
+		
+		/**
+		 * The mod count the map must still have for the iterator to be valid.
+		 */
+		private int expectedModCount;
+		
+		/**
+		 * Constructor that finishes any rehash and finds the first live pair.
+		 * A small map is walked in its inline array, which is left as it is.
+		 */
+		TableIterator() {
+			
+			if(inline == null)
+				finishRehash();
+			table = storage;
+			expectedModCount = modCount;
+			advance();
+		}
+		
+		/**
+		 * Moves next forward to the next live pair.
+		 * The inline pairs are packed at the front, so there is nothing to skip.
+		 */
+		private void advance() {
+			
+			while(table != null && next < table.length && (table[next] == null || table[next].key == null))
+				next++;
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean hasNext() {
+			
+			return next < (table != null ? table.length : numElements);
+		}
+		
+		/**
+		 * Returns the next live pair.
+		 * @return The next pair in slot order.
+		 * @throws NoSuchElementException if there are no more pairs.
+		 * @throws ConcurrentModificationException if the map was changed other than through this iterator.
+		 */
+		Pair<K, V> nextPair() {
+			
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if(!hasNext())
+				throw new NoSuchElementException();
+			
+			current = table != null ? table[next] : new InlinePair(2 * next);
+			next++;
+			advance();
+			return current;
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public void remove() {
+			
+			if(current == null)
+				throw new IllegalStateException();
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			
+			HashMap.this.remove(current.key);
+			current = null;
+			expectedModCount = modCount;
+			
+			//Removing an inline pair moves the last pair into its gap, which has to be visited next.
+			if(table == null)
+				next--;
+		}
+	}
+	
+	/**
+	 * Entry returned by the iterators of a small map, since the inline array holds no pair objects.
+	 * Setting its value writes through to the inline array while the pair is still there, and to wherever the key is now mapped otherwise.
+	 */
+	private class InlinePair extends Pair<K, V> {
+		
+		/**
+		 * The inline array the pair was read from.
+		 */
+		private final Object[] array;
+		
+		/**
+		 * The index of the key in that array.
+		 */
+		private final int index;
+		
+		/**
+		 * Constructor that copies a pair out of the inline array.
+		 * @param index The index of the key in the inline array.
+		 */
+		@SuppressWarnings("unchecked")
+		InlinePair(int index) {
+			
+			super((K) inline[index], (V) inline[index + 1]);
+			array = inline;
+			this.index = index;
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 * Writes through to the map only while the key is still mapped. A key that was removed is never put back, and only this pair changes.
+		 */
+		public V setValue(V value) {
+			
+			V oldVal = super.setValue(value);
+			if(array == inline && array[index] == key)
+			{
+				array[index + 1] = value;
+				return oldVal;
+			}
+			
+			//The key moved within the inline array or into the table, so it is looked up again.
+			if(inline != null)
+			{
+				int i = inlineIndex(key);
+				if(i >= 0)
+					inline[i + 1] = value;
+			}
+			else
+			{
+				Pair<K, V> pair = getEntry(key);
+				if(pair != null)
+					pair.value = value;
+			}
+			
+			return oldVal;
+		}
+	}
+	
+	/**
+	 * Spliterator over a range of slots of the table, used by the views for streams.
+	 * It walks the table directly, so nothing is copied, and splitting halves the range of slots so parallel streams can share the work.
+	 * Only the spliterator covering the whole table knows its exact size, the halves estimate theirs.
+	 * @param <E> The type of element returned by the spliterator.
+	 */
+	private class TableSpliterator<E> implements Spliterator<E> {
+		
+		/**
+		 * The table being walked.
+		 */
+		private final Pair<K, V> [] table;
+		
+		/**
+		 * Turns a live pair into the element returned by the spliterator.
+		 */
+		private final Function<Pair<K, V>, E> element;
+		
+		/**
+		 * The characteristics of the view besides SIZED.
+		 */
+		private final int characteristics;
+		
+		/**
+		 * The next slot to look at.
+		 */
+		private int index;
+		
+		/**
+		 * The slot just past the end of the range.
+		 */
+		private final int fence;
+		
+		/**
+		 * The number of pairs left in the range, exact only while the spliterator is sized.
+		 */
+		private int est;
+		
+		/**
+		 * True while the spliterator covers the whole table and has not been split, so its size is exact.
+		 * It is fixed at creation and only cleared by trySplit, so the characteristics do not change as the spliterator advances.
+		 */
+		private boolean sized;
+		
+		/**
+		 * The mod count the map must still have for the spliterator to be valid.
+		 */
+		private final int expectedModCount;
+		
+		/**
+		 * Constructor that finishes any rehash and covers the whole table.
+		 * It is only used once the pairs are in the table, the views of a small map split their iterators instead.
+		 * @param element Turns a live pair into the element returned.
+		 * @param characteristics The characteristics of the view besides SIZED.
+		 */
+		TableSpliterator(Function<Pair<K, V>, E> element, int characteristics) {
+			
+			finishRehash();
+			table = storage;
+			this.element = element;
+			this.characteristics = characteristics;
+			index = 0;
+			fence = table.length;
+			est = numElements;
+			sized = true;
+			expectedModCount = modCount;
+		}
+		
+		/**
+		 * Constructor used by trySplit for the lower half of a range.
+		 * @param parent The spliterator being split.
+		 * @param index The first slot of the half.
+		 * @param fence The slot just past the end of the half.
+		 * @param est The estimated number of pairs in the half.
+		 */
+		private TableSpliterator(TableSpliterator<E> parent, int index, int fence, int est) {
+			
+			table = parent.table;
+			element = parent.element;
+			characteristics = parent.characteristics;
+			this.index = index;
+			this.fence = fence;
+			this.est = est;
+			expectedModCount = parent.expectedModCount;
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public Spliterator<E> trySplit() {
+			
+			int mid = (index + fence) >>> 1;
+			if(index >= mid)
+				return null;
+			
+			TableSpliterator<E> lower = new TableSpliterator<>(this, index, mid, est >>>= 1);
+			index = mid;
+			sized = false;
+			return lower;
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean tryAdvance(Consumer<? super E> action) {
+			
+			if(action == null)
+				throw new NullPointerException();
+			
+			while(index < fence)
+			{
+				Pair<K, V> pair = table[index++];
+				
+				if(pair != null && pair.key != null)
+				{
+					if(est > 0)
+						est--;
+					action.accept(element.apply(pair));
+					if(modCount != expectedModCount)
+						throw new ConcurrentModificationException();
+					return true;
+				}
+			}
+			
+			return false;
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public void forEachRemaining(Consumer<? super E> action) {
+			
+			if(action == null)
+				throw new NullPointerException();
+			
+			//The mod count is only checked once at the end, like the iterators of java.util.
+			for(; index < fence; index++)
+			{
+				Pair<K, V> pair = table[index];
+				if(pair != null && pair.key != null)
+					action.accept(element.apply(pair));
+			}
+			
+			est = 0;
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public long estimateSize() {
+			
+			return est;
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public int characteristics() {
+			
+			//Only the spliterator over the whole table has an exact size.
+			return characteristics | (sized ? Spliterator.SIZED : 0);
+		}
+	}
+	
+	/**
+	 * Live view of the keys in the map.
+	 */
+	private class KeySet extends AbstractSet<K> {
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public Iterator<K> iterator() {
+			
+			return new TableIterator<K>() {
+				public K next() { return nextPair().key; }
+			};
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public Spliterator<K> spliterator() {
+			
+			//A small map has nothing to split, so its iterator is wrapped instead of moving the pairs to the table.
+			if(inline != null)
+				return Spliterators.spliterator(iterator(), numElements, Spliterator.DISTINCT | Spliterator.NONNULL);
+			
+			return new TableSpliterator<>(pair -> pair.key, Spliterator.DISTINCT | Spliterator.NONNULL);
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public int size() { return numElements; }
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean contains(Object o) { return containsKey(o); }
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean remove(Object o) {
+			
+			//The size tells whether a pair was removed even when its value was null.
+			int before = numElements;
+			HashMap.this.remove(o);
+			return numElements != before;
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public void clear() { HashMap.this.clear(); }
+	}
+	
+	/**
+	 * Live view of the values in the map.
+	 */
+	private class Values extends AbstractCollection<V> {
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public Iterator<V> iterator() {
+			
+			return new TableIterator<V>() {
+				public V next() { return nextPair().value; }
+			};
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public Spliterator<V> spliterator() {
+			
+			//A small map has nothing to split, so its iterator is wrapped instead of moving the pairs to the table.
+			if(inline != null)
+				return Spliterators.spliterator(iterator(), numElements, 0);
+			
+			return new TableSpliterator<>(pair -> pair.value, 0);
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public int size() { return numElements; }
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean contains(Object o) { return containsValue(o); }
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public void clear() { HashMap.this.clear(); }
+	}
+	
+	/**
+	 * Live view of the pairs in the map.
+	 */
+	private class EntrySet extends AbstractSet<Map.Entry<K,V>> {
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public Iterator<Map.Entry<K,V>> iterator() {
+			
+			return new TableIterator<Map.Entry<K,V>>() {
+				public Map.Entry<K,V> next() { return nextPair(); }
+			};
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public Spliterator<Map.Entry<K,V>> spliterator() {
+			
+			//A small map has nothing to split, so its iterator is wrapped instead of moving the pairs to the table.
+			if(inline != null)
+				return Spliterators.spliterator(iterator(), numElements, Spliterator.DISTINCT | Spliterator.NONNULL);
+			
+			return new TableSpliterator<>(pair -> pair, Spliterator.DISTINCT | Spliterator.NONNULL);
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public int size() { return numElements; }
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean contains(Object o) {
+			
+			if(!(o instanceof Map.Entry))
+				return false;
+			
+			Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+			if(e.getKey() == null)
+				return false;
+			
+			if(inline != null)
+			{
+				int i = inlineIndex(e.getKey());
+				return i >= 0 && Objects.equals(inline[i + 1], e.getValue());
+			}
+			
+			Pair<K, V> pair = getEntry(e.getKey());
+			return pair != null && Objects.equals(pair.value, e.getValue());
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean remove(Object o) {
+			
+			if(!contains(o))
+				return false;
+			
+			HashMap.this.remove(((Map.Entry<?,?>) o).getKey());
+			return true;
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public void clear() { HashMap.this.clear(); }
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,47 @@
+package myCollections;
+
+/**
+ * Mixing stage applied to a key's hash code before it is masked onto a power-of-two table.
+ * A mask only keeps the low bits, so a good mixer spreads every input bit into them.
+ * @author Renato Scudere
+ */
+@FunctionalInterface
+public interface HashMixer {
+
+	/**
+	 * Uses the hash code exactly as the key produced it. The seed is ignored.
+	 */
+	HashMixer NONE = (hash, seed) -> hash;
+
+	/**
+	 * The 32-bit finalizer from MurmurHash3 applied to the seeded hash code.
+	 */
+	HashMixer MURMUR3 = (hash, seed) -> {
+
+		int h = hash ^ seed;
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	};
+
+	/**
+	 * The rotate, xor and multiply step from FxHash.
+	 * The multiply only moves entropy upward, so the high half is folded back into the low bits that the mask keeps.
+	 */
+	HashMixer FXHASH = (hash, seed) -> {
+
+		int h = (Integer.rotateLeft(seed, 5) ^ hash) * 0x9e3779b9;
+		return h ^ (h >>> 16);
+	};
+
+	/**
+	 * Mixes a hash code.
+	 * @param hash The hash code produced by the key.
+	 * @param seed The per-table seed.
+	 * @return The mixed hash code.
+	 */
+	int mix(int hash, int seed);
+}
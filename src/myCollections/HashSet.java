@@ -1,22 +1,79 @@
 package myCollections;
 
+import java.lang.reflect.Array;
 import java.util.Collection;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 /**
- * Set class that uses an underlying hash map to create the set.
+ * Set class with its own open addressing table that holds only the elements, in a single flat array.
+ * It uses the same power-of-two table and triangular probing as HashMap, without a pair object or a value per element.
  * @author Renato Scudere.
  *
  * @param <T> The generic parameter used throughout.
  */
 public class HashSet<T> implements Set<T>{
-	
+
+	/**
+	 * Marks a slot whose element was removed. Bunnies/tombstones keep the probing sequence intact for later lookups.
+	 */
+	private static final Object TOMBSTONE = new Object();
+
 	/**
-	 * The underlying set is constructed from a HashMap.
+	 * The elements in the set. A null slot is empty and a TOMBSTONE slot was removed.
 	 */
-	private HashMap<T, T> set;
-	
+	private Object[] elements;
+
+	/**
+	 * The number of elements in the set.
+	 */
+	private int numElements = 0;
+
+	/**
+	 * The number of bunnies/tombstones left in the table by remove.
+	 */
+	private int numTombstones = 0;
+
+	/**
+	 * Stores the maximum load the table can have before rehashing.
+	 */
+	private static final double MAX_LOAD = 0.5;
+
+	/**
+	 * Stores the load of live elements plus bunnies/tombstones that triggers a compaction rehash.
+	 */
+	private static final double COMPACTION_THRESHOLD = 0.75;
+
+	/**
+	 * Stores the original size of the table.
+	 */
+	private int tableSize;
+
+	/**
+	 * Counts the structural changes to the set so that iterators can detect them.
+	 */
+	private int modCount = 0;
+
+	/**
+	 * The number of elements at which the bulk operations split their scan across the common fork/join pool.
+	 */
+	private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	/**
+	 * Counting Bloom filter over the elements that answers most misses before the table is probed, or null if it is off.
+	 */
+	private CountingBloomFilter bloomFilter;
+
+	/**
+	 * The false positive probability the Bloom filter is sized for.
+	 */
+	private double bloomFpp;
+
 	/**
 	 * Constructor that calls the single parameter constructor to set the size to 7.
 	 */
@@ -24,66 +81,138 @@ public class HashSet<T> implements Set<T>{
 	{
 		this(7);
 	}
-	
+
 	/**
 	 * Overloaded constructor that passes a size as an argument.
 	 * @param size The starting size of the set.
 	 */
 	public HashSet(int size)
 	{
-		set = new HashMap<>(size);
+		tableSize = HashMap.tableSizeFor(size);
+		elements = new Object[tableSize];
 	}
-	
+
 	/**
 	 * {@inheritDoc}
 	 */
 	public int size()
 	{
-		return set.size();
+		return numElements;
 	}
 
 	/**
 	 * {@inheritDocs}
 	 */
-	public boolean isEmpty() 
+	public boolean isEmpty()
 	{
 		return size() == 0;
 	}
-	
+
+	/**
+	 * Returns the number of slots in the table.
+	 * @return The number of slots in the table.
+	 */
+	public int capacity()
+	{
+		return elements.length;
+	}
+
 	/**
-	 * Adds an item to the set by calling the put method in the hash map.
+	 * Adds an item to the set.
+	 * The item is searched for and an open slot is found in the same pass through the probing sequence.
 	 * @param item The item to be added.
-	 * @return True if the item was added, false otherwise.
+	 * @return True if the item was added, false if it was null or already in the set.
 	 */
 	public boolean add(T item)
 	{
 		//Makes sure the item was not null.
 		if(item == null)
 			return false;
-		
-		//Adds the item to the set by calling the method from the map.
-		set.put(item, item);
+
+		int hash = hash(item);
+
+		//The first bunny/tombstone on the way is remembered so that it can be reused if the item is not found.
+		int mask = elements.length - 1;
+		int index = HashMap.indexFor(hash, elements.length);
+		int check = index;
+		int open = -1;
+
+		for(int i = 1; i <= elements.length; i++)
+		{
+			Object e = elements[check];
+
+			if(e == null)
+			{
+				if(open < 0)
+					open = check;
+				break;
+			}
+			else if(e == TOMBSTONE)
+			{
+				if(open < 0)
+					open = check;
+			}
+			else if(item.equals(e))
+				return false;
+
+			check = HashMap.ProbeStrategy.TRIANGULAR.next(index, check, i, mask);
+		}
+
+		if(elements[open] == TOMBSTONE)
+			numTombstones--;
+
+		elements[open] = item;
+		numElements++;
+		modCount++;
+
+		//The filter is rebuilt larger once the set holds more elements than it was sized for, so its false positive rate stays near the target.
+		if(bloomFilter != null)
+		{
+			if(numElements > bloomFilter.expectedInsertions())
+				rebuildBloomFilter(numElements * 2);
+			else
+				bloomFilter.add(item);
+		}
+
+		//Rehashes if after adding, the table's load is greater than max load.
+		//Otherwise compacts in place if the live elements and the bunnies/tombstones together are over the threshold.
+		if((numElements / (double)(elements.length)) > MAX_LOAD)
+			rehash(elements.length * 2);
+		else if(((numElements + numTombstones) / (double)(elements.length)) > COMPACTION_THRESHOLD)
+			rehash(elements.length);
+
 		return true;
 	}
-	
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public boolean remove(Object o) {
-		
-		//Simply removes the item in the map.
-		return set.remove(o) != null;
+
+		int index = find(o);
+		if(index < 0)
+			return false;
+
+		if(bloomFilter != null)
+			bloomFilter.remove(o);
+
+		//The slot is turned into a bunny/tombstone.
+		elements[index] = TOMBSTONE;
+		numElements--;
+		numTombstones++;
+		modCount++;
+
+		return true;
 	}
-	
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public boolean contains(Object o) {
-		
-		//Simply gets the item from the map.
-		return set.get(o) != null;
+
+		return find(o) >= 0;
 	}
 
 	/**
@@ -91,9 +220,146 @@ public class HashSet<T> implements Set<T>{
 	 */
 	@Override
 	public void clear() {
-		
-		//Creates a new map with a size of 7.
-		set = new HashMap<>(7);
+
+		elements = new Object[tableSize];
+		numElements = 0;
+		numTombstones = 0;
+		modCount++;
+
+		if(bloomFilter != null)
+			bloomFilter.clear();
+	}
+
+	/**
+	 * Puts a counting Bloom filter in front of the table, so that most lookups of absent elements return after a single cache line is read.
+	 * The filter is kept up to date by every insertion and removal, and is rebuilt twice as large whenever the set outgrows it.
+	 * @param fpp The false positive probability the filter is sized for.
+	 * @throws IllegalArgumentException if the probability is not between 0 and 1.
+	 */
+	public void enableBloomFilter(double fpp) {
+
+		if(!(fpp > 0 && fpp < 1))
+			throw new IllegalArgumentException("The false positive probability must be between 0 and 1.");
+
+		bloomFpp = fpp;
+		rebuildBloomFilter(Math.max(numElements, (int)(elements.length * MAX_LOAD)));
+	}
+
+	/**
+	 * Removes the Bloom filter from in front of the table.
+	 */
+	public void disableBloomFilter() {
+
+		bloomFilter = null;
+	}
+
+	/**
+	 * Returns whether a Bloom filter is in front of the table.
+	 * @return True if the filter is on, false otherwise.
+	 */
+	public boolean hasBloomFilter() {
+
+		return bloomFilter != null;
+	}
+
+	/**
+	 * Replaces the Bloom filter with one sized for the given number of elements, and adds every element of the set to it.
+	 * @param expectedInsertions The number of elements the new filter is sized for.
+	 */
+	private void rebuildBloomFilter(int expectedInsertions) {
+
+		bloomFilter = new CountingBloomFilter(Math.max(1, expectedInsertions), bloomFpp);
+
+		for(Object e : elements)
+		{
+			if(e != null && e != TOMBSTONE)
+				bloomFilter.add(e);
+		}
+	}
+
+	/**
+	 * Increases or decreases the size of the table to the smallest power of two larger than the requested size, and moves all elements to their new locations relative to the new size.
+	 * @param size The requested size for the hash table.
+	 * @return True if rehashing was successful, false otherwise.
+	 */
+	public boolean rehash(int size) {
+
+		int newSize = HashMap.tableSizeFor(size);
+
+		//Returns false if the new size would increase the load.
+		if((numElements / (double)(newSize)) > MAX_LOAD)
+			return false;
+
+		Object[] old = elements;
+		elements = new Object[newSize];
+
+		//Triangular probing reaches every slot, so every element finds an empty one.
+		for(int i = 0; i < old.length; i++)
+		{
+			if(old[i] != null && old[i] != TOMBSTONE)
+				elements[findEmpty(hash(old[i]))] = old[i];
+		}
+
+		numTombstones = 0;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Helper method for rehash that finds the first empty slot in the probing sequence of a hash.
+	 * @param hash The mixed hash code of the element being placed.
+	 * @return The index of the empty slot.
+	 */
+	private int findEmpty(int hash) {
+
+		int mask = elements.length - 1;
+		int index = HashMap.indexFor(hash, elements.length);
+		int check = index;
+
+		for(int i = 1; elements[check] != null; i++)
+			check = HashMap.ProbeStrategy.TRIANGULAR.next(index, check, i, mask);
+
+		return check;
+	}
+
+	/**
+	 * Helper method for contains and remove that locates the slot of an element.
+	 * @param o The element being looked for.
+	 * @return The index of the element, or -1 if it is not in the table.
+	 */
+	private int find(Object o) {
+
+		if(o == null)
+			return -1;
+
+		//An element the Bloom filter has never seen is not in the table.
+		if(bloomFilter != null && !bloomFilter.mightContain(o))
+			return -1;
+
+		int mask = elements.length - 1;
+		int index = HashMap.indexFor(hash(o), elements.length);
+		int check = index;
+
+		for(int i = 1; i <= elements.length && elements[check] != null; i++)
+		{
+			//A bunny/tombstone never matches because TOMBSTONE is not equal to any element.
+			if(o.equals(elements[check]))
+				return check;
+
+			check = HashMap.ProbeStrategy.TRIANGULAR.next(index, check, i, mask);
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Mixes the hash code of an element so that weak low bits still spread over the table.
+	 * @param o The element being hashed.
+	 * @return The mixed hash code.
+	 */
+	private static int hash(Object o) {
+
+		return HashMixer.MURMUR3.mix(o.hashCode(), 0);
 	}
 
 	/**
@@ -101,107 +367,467 @@ public class HashSet<T> implements Set<T>{
 	 */
 	@Override
 	public Iterator<T> iterator() {
-		
-		/**
-		 * Returns the abstract iterator class.
-		 */
-		return new Iterator<>()
-		{
-			//Holds the array representation of the set.
-			private Object [] val = toArray();
-			
-			//The current index being looked at.
-			private int index = 0;
-			
-			/**
-			 * Checks to see if the array has a next item.
-			 * @return True if it index is not at the last element, false otherwise.
-			 */
-			@Override
-			public boolean hasNext() {
-				// TODO Auto-generated method stub
-				return index != val.length;
-			}
 
-			/**
-			 * Gets the next item in the array.
-			 * @return The element at the index.
-			 */
-			@SuppressWarnings("unchecked")
-			@Override
-			public T next() {
-				// TODO Auto-generated method stub
-				return (T) val[index++];
-			}
-			
-		};
+		//Walks the table directly instead of copying it into an array first.
+		return new SetIterator();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The spliterator splits the table into ranges of slots, so parallel streams over the set need no copy.
+	 */
+	@Override
+	public Spliterator<T> spliterator() {
+
+		return new SetSpliterator(elements, 0, elements.length, numElements, modCount);
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	@SuppressWarnings("unchecked")
 	public Object[] toArray() {
-		
-		//Creates an array of only keys.
-		HashMap.Pair<T, T> [] arr = (HashMap.Pair<T, T> []) set.toArray();
-		
+
 		//The array that will be returned.
-		Object [] ret = new Object[arr.length];
-		
-		//Gets all the keys from the map toArray and puts them in an array.
-		for(int i = 0; i < arr.length; i++)
+		Object [] ret = new Object[numElements];
+		int j = 0;
+
+		//Gets all the elements from the table and puts them in an array.
+		for(int i = 0; i < elements.length; i++)
 		{
-			ret[i] = arr[i].key;
+			if(elements[i] != null && elements[i] != TOMBSTONE)
+				ret[j++] = elements[i];
 		}
-		
+
 		return ret;
 	}
-	
-	/* The following methods are unsupported.
-	 * May change if needed.
+
+	/**
+	 * {@inheritDoc}
+	 * Two sets are equal if they have the same size and every element of the other set is in this one.
 	 */
+	public boolean equals(Object o) {
+
+		if(o == this)
+			return true;
+		if(!(o instanceof Set))
+			return false;
+
+		Set<?> s = (Set<?>) o;
+		if(s.size() != numElements)
+			return false;
+
+		try
+		{
+			return containsAll(s);
+		}
+		catch(ClassCastException | NullPointerException e)
+		{
+			//Set.equals returns false rather than throwing when an element cannot be looked up.
+			return false;
+		}
+	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	@SuppressWarnings("hiding")
-	@Override
-	public <T> T[] toArray(T[] a) {
-		throw new UnsupportedOperationException();
+	public int hashCode() {
+
+		int h = 0;
+		for(int i = 0; i < elements.length; i++)
+		{
+			if(elements[i] != null && elements[i] != TOMBSTONE)
+				h += elements[i].hashCode();
+		}
+
+		return h;
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
-	@Override
-	public boolean containsAll(Collection<?> c) {
-		throw new UnsupportedOperationException();
+	public String toString() {
+
+		StringBuilder s = new StringBuilder("[");
+		for(int i = 0; i < elements.length; i++)
+		{
+			if(elements[i] != null && elements[i] != TOMBSTONE)
+				s.append(elements[i]).append(", ");
+		}
+
+		if(numElements > 0)
+			s.setLength(s.length() - 2);
+		return s.append("]").toString();
+	}
+
+	/**
+	 * Iterator over the live elements of the table in slot order.
+	 */
+	private class SetIterator implements Iterator<T> {
+
+		/**
+		 * The table being walked.
+		 */
+		private final Object[] table = elements;
+
+		/**
+		 * The index of the next live element, or the table length if there is none.
+		 */
+		private int next = 0;
+
+		/**
+		 * The element returned by the last call to next, or null if it was removed.
+		 */
+		private Object current;
+
+		/**
+		 * The mod count the set must still have for the iterator to be valid.
+		 */
+		private int expectedModCount = modCount;
+
+		/**
+		 * Constructor that finds the first live element.
+		 */
+		SetIterator() {
+
+			advance();
+		}
+
+		/**
+		 * Moves next forward to the next live element.
+		 */
+		private void advance() {
+
+			while(next < table.length && (table[next] == null || table[next] == TOMBSTONE))
+				next++;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean hasNext() {
+
+			return next < table.length;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("unchecked")
+		public T next() {
+
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if(next >= table.length)
+				throw new NoSuchElementException();
+
+			current = table[next++];
+			advance();
+			return (T) current;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * Removing only leaves a bunny/tombstone, so the table being walked never moves.
+		 */
+		public void remove() {
+
+			if(current == null)
+				throw new IllegalStateException();
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+
+			HashSet.this.remove(current);
+			current = null;
+			expectedModCount = modCount;
+		}
+	}
+
+	/**
+	 * Spliterator over a range of slots of the table.
+	 * Splitting halves the range of slots, and only the spliterator covering the whole table knows its exact size.
+	 */
+	private class SetSpliterator implements Spliterator<T> {
+
+		/**
+		 * The table being walked.
+		 */
+		private final Object[] table;
+
+		/**
+		 * The next slot to look at.
+		 */
+		private int index;
+
+		/**
+		 * The slot just past the end of the range.
+		 */
+		private final int fence;
+
+		/**
+		 * The number of elements left in the range, exact only while the spliterator is sized.
+		 */
+		private int est;
+
+		/**
+		 * True while the spliterator covers the whole table and has not been split, so its size is exact.
+		 * It is fixed at creation and only cleared by trySplit, so the characteristics do not change as the spliterator advances.
+		 */
+		private boolean sized;
+
+		/**
+		 * The mod count the set must still have for the spliterator to be valid.
+		 */
+		private final int expectedModCount;
+
+		/**
+		 * Constructor that covers a range of slots.
+		 * @param table The table being walked.
+		 * @param index The first slot of the range.
+		 * @param fence The slot just past the end of the range.
+		 * @param est The estimated number of elements in the range.
+		 * @param expectedModCount The mod count of the set when the walk started.
+		 */
+		SetSpliterator(Object[] table, int index, int fence, int est, int expectedModCount) {
+
+			this.table = table;
+			this.index = index;
+			this.fence = fence;
+			this.est = est;
+			this.expectedModCount = expectedModCount;
+			sized = index == 0 && fence == table.length;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public Spliterator<T> trySplit() {
+
+			int mid = (index + fence) >>> 1;
+			if(index >= mid)
+				return null;
+
+			SetSpliterator lower = new SetSpliterator(table, index, mid, est >>>= 1, expectedModCount);
+			index = mid;
+			sized = false;
+			return lower;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("unchecked")
+		public boolean tryAdvance(Consumer<? super T> action) {
+
+			if(action == null)
+				throw new NullPointerException();
+
+			while(index < fence)
+			{
+				Object e = table[index++];
+
+				if(e != null && e != TOMBSTONE)
+				{
+					if(est > 0)
+						est--;
+					action.accept((T) e);
+					if(modCount != expectedModCount)
+						throw new ConcurrentModificationException();
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("unchecked")
+		public void forEachRemaining(Consumer<? super T> action) {
+
+			if(action == null)
+				throw new NullPointerException();
+
+			for(; index < fence; index++)
+			{
+				Object e = table[index];
+				if(e != null && e != TOMBSTONE)
+					action.accept((T) e);
+			}
+
+			est = 0;
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public long estimateSize() {
+
+			return est;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public int characteristics() {
+
+			//Only the spliterator over the whole table has an exact size.
+			return Spliterator.DISTINCT | Spliterator.NONNULL | (sized ? Spliterator.SIZED : 0);
+		}
 	}
 
 	/**
 	 * {@inheritDoc}
+	 * The table is grown once up front to fit every element of the collection, so adding them never rehashes more than once.
 	 */
 	@Override
 	public boolean addAll(Collection<? extends T> c) {
-		throw new UnsupportedOperationException();
+
+		//Duplicates may make this larger than needed, but it never has to grow twice.
+		long needed = (long) numElements + c.size();
+		if(needed / (double)(elements.length) > MAX_LOAD)
+			rehash((int) Math.min(HashMap.MAXIMUM_CAPACITY, (long) Math.ceil(needed / MAX_LOAD)));
+
+		boolean changed = false;
+		for(T item : c)
+			changed |= add(item);
+
+		return changed;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * A set that has more elements than this one cannot be contained in it, so that case returns right away.
+	 * Large collections are checked in parallel, since only this set's contains is called.
+	 */
+	@Override
+	public boolean containsAll(Collection<?> c) {
+
+		if(c instanceof Set && c.size() > numElements)
+			return false;
+
+		//contains only reads the table, so the checks can run at the same time.
+		if(c.size() >= PARALLEL_THRESHOLD)
+			return c.parallelStream().allMatch(this::contains);
+
+		for(Object o : c)
+		{
+			if(!contains(o))
+				return false;
+		}
+
+		return true;
 	}
 
 	/**
 	 * {@inheritDoc}
+	 * The elements not in the collection are dropped in one scan of the table, and the table is compacted once at the end.
 	 */
 	@Override
 	public boolean retainAll(Collection<?> c) {
-		throw new UnsupportedOperationException();
+
+		return filter(c, true);
 	}
 
 	/**
 	 * {@inheritDoc}
+	 * A smaller set is walked and its elements removed one by one.
+	 * Otherwise the table is scanned once for elements in the collection, and compacted once at the end.
 	 */
 	@Override
 	public boolean removeAll(Collection<?> c) {
-		throw new UnsupportedOperationException();
+
+		if(c instanceof Set && c.size() < numElements)
+		{
+			boolean changed = false;
+			for(Object o : c)
+				changed |= remove(o);
+
+			return changed;
+		}
+
+		return filter(c, false);
+	}
+
+	/**
+	 * Helper method for retainAll and removeAll that drops the elements whose membership in a collection is not what is wanted.
+	 * The scan only records which slots to drop, so the set is unchanged if contains throws partway through.
+	 * It runs in parallel for large tables only when the collection is another HashSet, whose contains is known to be safe to call from many threads.
+	 * Then the dropped slots become bunnies/tombstones, and a single rehash at the same capacity clears them all.
+	 * @param c The collection being checked against.
+	 * @param retain True to keep the elements in the collection, false to keep the ones not in it.
+	 * @return True if any element was dropped, false otherwise.
+	 */
+	private boolean filter(Collection<?> c, boolean retain) {
+
+		if(c == null)
+			throw new NullPointerException();
+
+		Object[] table = elements;
+		boolean[] drop = new boolean[table.length];
+		IntStream slots = IntStream.range(0, table.length);
+		if(numElements >= PARALLEL_THRESHOLD && c instanceof HashSet)
+			slots = slots.parallel();
+
+		//Every slot is written by one task only.
+		int dropped = slots.map(i -> {
+
+			Object e = table[i];
+			if(e == null || e == TOMBSTONE || c.contains(e) == retain)
+				return 0;
+
+			drop[i] = true;
+			return 1;
+		}).sum();
+
+		if(dropped == 0)
+			return false;
+
+		//Every contains call has returned, so the table can be changed now.
+		for(int i = 0; i < table.length; i++)
+		{
+			if(drop[i])
+				table[i] = TOMBSTONE;
+		}
+
+		numElements -= dropped;
+		numTombstones += dropped;
+		modCount++;
+		rehash(elements.length);
+
+		//The scan may run in parallel and the filter is not thread safe, so it is rebuilt from the survivors instead.
+		if(bloomFilter != null)
+			rebuildBloomFilter((int) bloomFilter.expectedInsertions());
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings({"hiding", "unchecked"})
+	@Override
+	public <T> T[] toArray(T[] a) {
+
+		//A new array of the same component type is created if the given one is too small.
+		if(a.length < numElements)
+			a = (T[]) Array.newInstance(a.getClass().getComponentType(), numElements);
+
+		int j = 0;
+		for(int i = 0; i < elements.length; i++)
+		{
+			if(elements[i] != null && elements[i] != TOMBSTONE)
+				a[j++] = (T) elements[i];
+		}
+
+		//The element after the last one is set to null, as the Collection contract asks.
+		if(a.length > numElements)
+			a[numElements] = null;
+
+		return a;
 	}
 
 }
@@ -0,0 +1,367 @@
+package myCollections;
+
+/**
+ * Map from long keys to long values that stores both in primitive arrays, so no put or get boxes or allocates anything.
+ * The key 0 is reserved to mark an empty slot, and its value is stored outside the table.
+ * It uses linear probing on a power-of-two table, and remove shifts the following elements back instead of leaving bunnies/tombstones.
+ * @author Renato Scudere
+ */
+public class LongLongHashMap {
+
+	/**
+	 * The keys in the map. A slot holding 0 is empty.
+	 */
+	private long[] keys;
+
+	/**
+	 * The values in the map, stored at the same index as their key.
+	 */
+	private long[] values;
+
+	/**
+	 * True if the key 0 is in the map.
+	 */
+	private boolean hasZeroKey = false;
+
+	/**
+	 * The value of the key 0, since 0 cannot be stored in the table.
+	 */
+	private long zeroValue;
+
+	/**
+	 * The number of elements in the map, including the key 0.
+	 */
+	private int numElements = 0;
+
+	/**
+	 * Stores the maximum load the table can have before rehashing.
+	 */
+	private double maxLoad;
+
+	/**
+	 * Stores the original size of the table.
+	 */
+	private int tableSize;
+
+	/**
+	 * Constructor creates a hash table with the smallest power of two larger than the requested size as its initial size.
+	 * It uses the default max load value of 0.5.
+	 * @param size The requested size for the hash table.
+	 */
+	public LongLongHashMap(int size) {
+
+		this(size, 0.5);
+	}
+
+	/**
+	 * Constructor creates a hash table with the smallest power of two larger than the requested size as its initial size.
+	 * It uses the max load value passed to the constructor.
+	 * @param size The requested size of the hash table.
+	 * @param maxLoad The max load value that the table must inhibit.
+	 * @throws IllegalArgumentException if the max load is not between 0 and 1, since linear probing needs at least one empty slot.
+	 */
+	public LongLongHashMap(int size, double maxLoad) {
+
+		if(!(maxLoad > 0 && maxLoad < 1))
+			throw new IllegalArgumentException("The max load must be between 0 and 1.");
+
+		tableSize = HashMap.tableSizeFor(size);
+		keys = new long[tableSize];
+		values = new long[tableSize];
+		this.maxLoad = maxLoad;
+	}
+
+	/**
+	 * Removes every element from the map.
+	 */
+	public void clear() {
+
+		keys = new long[tableSize];
+		values = new long[tableSize];
+		hasZeroKey = false;
+		zeroValue = 0;
+		numElements = 0;
+	}
+
+	/**
+	 * Checks to see if the map is empty.
+	 * @return True if the map has no elements, false otherwise.
+	 */
+	public boolean isEmpty() {
+
+		return numElements == 0;
+	}
+
+	/**
+	 * Returns the number of elements in the map.
+	 * @return The number of elements in the map.
+	 */
+	public int size() {
+
+		return numElements;
+	}
+
+	/**
+	 * Returns the number of slots in the table.
+	 * @return The number of slots in the table.
+	 */
+	public int capacity() {
+
+		return keys.length;
+	}
+
+	/**
+	 * Checks to see if a key is in the map.
+	 * @param key The key being looked for.
+	 * @return True if the key is in the map, false otherwise.
+	 */
+	public boolean containsKey(long key) {
+
+		if(key == 0)
+			return hasZeroKey;
+
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Returns the value of a key.
+	 * @param key The key being looked for.
+	 * @return The value of the key, or 0 if it is not in the map.
+	 */
+	public long get(long key) {
+
+		return getOrDefault(key, 0);
+	}
+
+	/**
+	 * Returns the value of a key, or a default if the key is not in the map.
+	 * @param key The key being looked for.
+	 * @param defaultValue The value returned if the key is not in the map.
+	 * @return The value of the key, or the default value.
+	 */
+	public long getOrDefault(long key, long defaultValue) {
+
+		if(key == 0)
+			return hasZeroKey ? zeroValue : defaultValue;
+
+		int index = find(key);
+		return index < 0 ? defaultValue : values[index];
+	}
+
+	/**
+	 * Associates a value with a key.
+	 * @param key The key being added or updated.
+	 * @param value The value stored with the key.
+	 * @return The previous value of the key, or 0 if it was not in the map.
+	 */
+	public long put(long key, long value) {
+
+		if(key == 0)
+		{
+			long oldVal = zeroValue;
+			if(!hasZeroKey)
+				numElements++;
+			hasZeroKey = true;
+			zeroValue = value;
+			return oldVal;
+		}
+
+		int index = slotFor(key);
+		if(keys[index] == key)
+		{
+			long oldVal = values[index];
+			values[index] = value;
+			return oldVal;
+		}
+
+		insert(index, key, value);
+		return 0;
+	}
+
+	/**
+	 * Adds a delta to the value of a key in a single pass through the probing sequence.
+	 * A key that is not in the map is added with the delta as its value.
+	 * @param key The key being incremented.
+	 * @param delta The amount added to the value.
+	 * @return The new value of the key.
+	 */
+	public long addTo(long key, long delta) {
+
+		if(key == 0)
+		{
+			if(!hasZeroKey)
+				numElements++;
+			hasZeroKey = true;
+			return zeroValue += delta;
+		}
+
+		int index = slotFor(key);
+		if(keys[index] == key)
+			return values[index] += delta;
+
+		insert(index, key, delta);
+		return delta;
+	}
+
+	/**
+	 * Removes a key from the map.
+	 * @param key The key being removed.
+	 * @return The value of the key, or 0 if it was not in the map.
+	 */
+	public long remove(long key) {
+
+		if(key == 0)
+		{
+			long oldVal = zeroValue;
+			if(hasZeroKey)
+				numElements--;
+			hasZeroKey = false;
+			zeroValue = 0;
+			return oldVal;
+		}
+
+		int index = find(key);
+		if(index < 0)
+			return 0;
+
+		long oldVal = values[index];
+		shiftBack(index);
+		numElements--;
+
+		return oldVal;
+	}
+
+	/**
+	 * Helper method for remove that closes the gap left by a removed element.
+	 * Every following element that may move back without passing its home slot does so, and the run ends at an empty slot.
+	 * @param gap The slot that was just emptied.
+	 */
+	private void shiftBack(int gap) {
+
+		int mask = keys.length - 1;
+		int index = (gap + 1) & mask;
+
+		while(keys[index] != 0)
+		{
+			int home = hash(keys[index]) & mask;
+
+			//The element may fill the gap if it is at least as far from its home as it is from the gap.
+			if(((index - home) & mask) >= ((index - gap) & mask))
+			{
+				keys[gap] = keys[index];
+				values[gap] = values[index];
+				gap = index;
+			}
+
+			index = (index + 1) & mask;
+		}
+
+		keys[gap] = 0;
+		values[gap] = 0;
+	}
+
+	/**
+	 * Stores a key that is not in the map at the empty slot found for it, then grows the table if needed.
+	 * @param index The empty slot returned by slotFor.
+	 * @param key The key being added.
+	 * @param value The value stored with the key.
+	 */
+	private void insert(int index, long key, long value) {
+
+		keys[index] = key;
+		values[index] = value;
+		numElements++;
+
+		//Rehashes if after adding, the table's load is greater than max load.
+		if((numElements / (double)(keys.length)) > maxLoad)
+			rehash(keys.length * 2);
+	}
+
+	/**
+	 * Increases or decreases the size of the map to the smallest power of two larger than the requested size, and moves all elements to their new locations relative to the new size.
+	 * @param size The requested size for the hash table.
+	 * @return True if rehashing was successful, false otherwise.
+	 */
+	public boolean rehash(int size) {
+
+		int newSize = HashMap.tableSizeFor(size);
+
+		//Returns false if the new size would increase the load.
+		if((numElements / (double)(newSize)) > maxLoad)
+			return false;
+
+		long[] oldKeys = keys;
+		long[] oldValues = values;
+		keys = new long[newSize];
+		values = new long[newSize];
+
+		for(int i = 0; i < oldKeys.length; i++)
+		{
+			if(oldKeys[i] != 0)
+			{
+				int index = slotFor(oldKeys[i]);
+				keys[index] = oldKeys[i];
+				values[index] = oldValues[i];
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Helper method that walks the probing sequence of a nonzero key.
+	 * @param key The key being looked for.
+	 * @return The slot holding the key, or the empty slot that ends its probing sequence.
+	 */
+	private int slotFor(long key) {
+
+		int mask = keys.length - 1;
+		int index = hash(key) & mask;
+
+		while(keys[index] != 0 && keys[index] != key)
+			index = (index + 1) & mask;
+
+		return index;
+	}
+
+	/**
+	 * Helper method that locates the slot of a nonzero key.
+	 * @param key The key being looked for.
+	 * @return The index of the key, or -1 if it is not in the table.
+	 */
+	private int find(long key) {
+
+		int index = slotFor(key);
+		return keys[index] == key ? index : -1;
+	}
+
+	/**
+	 * Mixes a key so that keys with weak low bits still spread over the table.
+	 * @param key The key being hashed.
+	 * @return The mixed hash code.
+	 */
+	private static int hash(long key) {
+
+		return HashMixer.MURMUR3.mix(Long.hashCode(key), 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String toString() {
+
+		StringBuilder s = new StringBuilder("{");
+		if(hasZeroKey)
+			s.append("0=").append(zeroValue).append(", ");
+
+		for(int i = 0; i < keys.length; i++)
+		{
+			if(keys[i] != 0)
+				s.append(keys[i]).append("=").append(values[i]).append(", ");
+		}
+
+		if(numElements > 0)
+			s.setLength(s.length() - 2);
+		return s.append("}").toString();
+	}
+}
@@ -74,25 +74,73 @@ public class MinHeap<T extends Comparable<? super T>> {
 		percolateUp(hole);
 	}
 	
+	/**
+	 * Removes the smallest item from the heap.
+	 * @return The item at the root of the tree.
+	 */
 	public T removeMin()
 	{
 		//Gets the item at the root of the tree, which is at array index 0.
 		T min = heap.get(0);
 		
-		//Gets the last item in the array and puts it at the root of the tree (array index 0).
-		heap.set(0, heap.get(heap.size() - 1));
+		//Removes the last item in the array, which is always a leaf.
+		T last = heap.remove(heap.size() - 1);
 		
-		//Used to move the item down the tree if its parent is smaller than it.
-		percolateDown(0);
-		
-		//Removes the last element in the array, which was just moved to the top.
-		/* This is done afterward so that the array can preserve the size of the tree before the element was removed
-		   and thus allows percolate down to go all the way to the edge of the array without losing a spot.
-		 */
-		heap.remove(heap.size() - 1);
+		//Puts the last item at the root of the tree (array index 0) and moves it down if its children are smaller than it.
+		if(!isEmpty())
+		{
+			heap.set(0, last);
+			percolateDown(0);
+		}
 		
 		return min;
 	}
+	
+	/**
+	 * Returns the smallest item without removing it.
+	 * @return The item at the root of the tree.
+	 */
+	public T peek()
+	{
+		return heap.get(0);
+	}
+	
+	/**
+	 * Returns the number of items in the heap.
+	 * @return The size of the heap.
+	 */
+	public int size()
+	{
+		return heap.size();
+	}
+	
+	/**
+	 * Adds an item to a heap that is kept to a fixed number of items, which then holds the largest items offered to it.
+	 * While the heap holds fewer items than the bound the item is added, otherwise it replaces the root if it is larger.
+	 * Unlike add, this does not check for duplicates, so each call takes logarithmic time.
+	 * @param x The item being offered.
+	 * @param bound The number of items the heap is kept to.
+	 * @return True if the item was kept, false otherwise.
+	 */
+	public boolean offer(T x, int bound)
+	{
+		if(heap.size() < bound)
+		{
+			heap.add(x);
+			percolateUp(heap.size() - 1);
+			return true;
+		}
+		
+		//Replaces the smallest item and moves the new item down to its place.
+		if(bound > 0 && x.compareTo(heap.get(0)) > 0)
+		{
+			heap.set(0, x);
+			percolateDown(0);
+			return true;
+		}
+		
+		return false;
+	}
 
 	/**
 	 * Checks the child and parent nodes in the array.
@@ -130,44 +178,27 @@ public class MinHeap<T extends Comparable<? super T>> {
 	 */
 	private void percolateDown(int index)
 	{
-		//Iterates while it has children.
-		//If the child calculation is larger than the size of the tree, then the node has no children.
-		//I still am a little iffy on whether this test will always maintain the method in the bounds of the array.
-		while((2 * index) + 2 < heap.size())
+		//Iterates while it has a left child.
+		//If the left child calculation is not smaller than the size of the tree, then the node has no children.
+		while((2 * index) + 1 < heap.size())
 		{
-			//Gets the left and right children of the parent at index.
-			T left = heap.get((2 * index) + 1);
-			T right = heap.get((2 * index) + 2);
-			
-			//If the left child is smaller than both the parent and the right child, then swap it with the current parent.
+			//Picks the smaller of the children. A node may have only a left child.
 			//These can be changed to use a comparator instead if necessary.
-			//I'm not sure how to implement Comparators for dynamic arrays, so I leave it to you to figure that out.
-			if(left != null && left.compareTo(right) < 0 && heap.get(index).compareTo(left) > 0)
-			{
-				//Places the parent at the left child's location.
-				heap.set((2 * index) + 1, heap.get(index));
-				
-				//Places the child where the parent used to be.
-				heap.set(index, left);
-				
-				//Moves the index to the location where the parent now is.
-				index = (2 * index) + 1;
-			}
-			//If the right child is smaller than both the parent and the let child, then swap it with the current parent.
-			else if(left != null && right.compareTo(left) < 0 && heap.get(index).compareTo(right) > 0)
-			{
-				//Places the parent at the right child's location.
-				heap.set((2 * index) + 2, heap.get(index));
-				
-				//Places the child where the parent used to be.
-				heap.set(index, right);
-				
-				//Moves the index to the location where the parent is now.
-				index = (2 * index) + 2;
-			}
-			//If both children were larger, then the parent is in the right spot, so return.
-			else
+			int child = (2 * index) + 1;
+			if(child + 1 < heap.size() && heap.get(child + 1).compareTo(heap.get(child)) < 0)
+				child++;
+			
+			//If the smaller child is not smaller than the parent, then the parent is in the right spot, so return.
+			if(heap.get(index).compareTo(heap.get(child)) <= 0)
 				return;
+			
+			//Places the parent at the child's location and the child where the parent used to be.
+			T parent = heap.get(index);
+			heap.set(index, heap.get(child));
+			heap.set(child, parent);
+			
+			//Moves the index to the location where the parent now is.
+			index = child;
 		}
 	}
 	
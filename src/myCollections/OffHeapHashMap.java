@@ -0,0 +1,653 @@
+package myCollections;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Map from fixed-width binary keys to fixed-width binary values, stored outside the Java heap in direct byte buffers.
+ * The garbage collector only sees the handful of buffer objects, no matter how many entries the map holds.
+ * Each slot holds a state byte, the key's hash code, the key bytes and the value bytes.
+ * It uses linear probing on a power-of-two table, and remove shifts the following elements back instead of leaving bunnies/tombstones.
+ * The slots are split across several buffers, since one buffer cannot be larger than 2 GB.
+ * The table can be written to a snapshot file and memory-mapped back, so a restart does not have to rebuild it.
+ * @author Renato Scudere
+ */
+public class OffHeapHashMap {
+
+	/**
+	 * State byte of a slot that holds nothing.
+	 */
+	private static final byte EMPTY = 0;
+
+	/**
+	 * State byte of a slot that holds a key and value.
+	 */
+	private static final byte FULL = 1;
+
+	/**
+	 * Offset of the hash code inside a slot, right after the state byte.
+	 */
+	private static final int HASH_OFFSET = 1;
+
+	/**
+	 * Offset of the key inside a slot, right after the hash code.
+	 */
+	private static final int KEY_OFFSET = 5;
+
+	/**
+	 * The largest number of bytes placed in one buffer.
+	 */
+	private static final int MAX_CHUNK_BYTES = 1 << 30;
+	
+	/**
+	 * The first four bytes of every snapshot file.
+	 */
+	private static final int SNAPSHOT_MAGIC = 0x4F484D53;
+	
+	/**
+	 * The layout version written to snapshot files.
+	 */
+	private static final int SNAPSHOT_VERSION = 1;
+	
+	/**
+	 * The number of bytes before the first buffer in a snapshot file.
+	 */
+	private static final int SNAPSHOT_HEADER = 64;
+
+	/**
+	 * The number of bytes in every key.
+	 */
+	private final int keyWidth;
+
+	/**
+	 * The number of bytes in every value.
+	 */
+	private final int valueWidth;
+
+	/**
+	 * The number of bytes in every slot.
+	 */
+	private final int slotWidth;
+
+	/**
+	 * The buffers holding the slots. Every buffer holds the same power-of-two number of slots, except when there is only one.
+	 */
+	private ByteBuffer[] chunks;
+
+	/**
+	 * The number of bits a slot number is shifted right to find its buffer.
+	 */
+	private int chunkShift;
+
+	/**
+	 * The number of slots in the table.
+	 */
+	private int capacity;
+
+	/**
+	 * The number of elements in the map.
+	 */
+	private int numElements = 0;
+
+	/**
+	 * Stores the maximum load the table can have before rehashing.
+	 */
+	private double maxLoad;
+
+	/**
+	 * Stores the original size of the table.
+	 */
+	private int tableSize;
+
+	/**
+	 * Constructor creates a hash table with the smallest power of two larger than the requested size as its initial size.
+	 * It uses the default max load value of 0.5.
+	 * @param keyWidth The number of bytes in every key.
+	 * @param valueWidth The number of bytes in every value.
+	 * @param size The requested size for the hash table.
+	 */
+	public OffHeapHashMap(int keyWidth, int valueWidth, int size) {
+
+		this(keyWidth, valueWidth, size, 0.5);
+	}
+
+	/**
+	 * Constructor creates a hash table with the smallest power of two larger than the requested size as its initial size.
+	 * It uses the max load value passed to the constructor.
+	 * @param keyWidth The number of bytes in every key.
+	 * @param valueWidth The number of bytes in every value.
+	 * @param size The requested size of the hash table.
+	 * @param maxLoad The max load value that the table must inhibit.
+	 * @throws IllegalArgumentException if a width is not positive, a slot would not fit in one buffer, or the max load is not between 0 and 1.
+	 */
+	public OffHeapHashMap(int keyWidth, int valueWidth, int size, double maxLoad) {
+
+		if(keyWidth < 1 || valueWidth < 1)
+			throw new IllegalArgumentException("The key and value widths must be positive.");
+		if((long) KEY_OFFSET + keyWidth + valueWidth > MAX_CHUNK_BYTES)
+			throw new IllegalArgumentException("A slot cannot be larger than " + MAX_CHUNK_BYTES + " bytes.");
+		if(!(maxLoad > 0 && maxLoad < 1))
+			throw new IllegalArgumentException("The max load must be between 0 and 1.");
+
+		this.keyWidth = keyWidth;
+		this.valueWidth = valueWidth;
+		this.slotWidth = KEY_OFFSET + keyWidth + valueWidth;
+		this.maxLoad = maxLoad;
+
+		tableSize = HashMap.tableSizeFor(size);
+		allocate(tableSize);
+	}
+
+	/**
+	 * Allocates zeroed buffers for a table with the given number of slots.
+	 * @param slots The number of slots, which must be a power of two.
+	 */
+	private void allocate(int slots) {
+
+		//The largest power of two number of slots that fits in one buffer.
+		int perChunk = Integer.highestOneBit(MAX_CHUNK_BYTES / slotWidth);
+		perChunk = Math.min(perChunk, slots);
+
+		ByteBuffer[] newChunks = new ByteBuffer[slots / perChunk];
+		for(int i = 0; i < newChunks.length; i++)
+			newChunks[i] = ByteBuffer.allocateDirect(perChunk * slotWidth).order(ByteOrder.nativeOrder());
+
+		setTable(newChunks, slots);
+	}
+
+	/**
+	 * Installs a set of buffers as the table.
+	 * @param newChunks The buffers holding the slots.
+	 * @param slots The total number of slots in the buffers.
+	 */
+	private void setTable(ByteBuffer[] newChunks, int slots) {
+
+		chunks = newChunks;
+		capacity = slots;
+		chunkShift = Integer.numberOfTrailingZeros(slots / newChunks.length);
+	}
+
+	/**
+	 * Writes the table to a file exactly as it is laid out in memory: a small header followed by the raw bytes of every buffer.
+	 * @param file The file being written. An existing file is replaced.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public void writeSnapshot(Path file) throws IOException {
+
+		ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER);
+		header.putInt(SNAPSHOT_MAGIC);
+		header.putInt(SNAPSHOT_VERSION);
+		header.putInt(keyWidth);
+		header.putInt(valueWidth);
+		header.putInt(capacity);
+		header.putInt(chunks.length);
+		header.putInt(numElements);
+		header.putInt(tableSize);
+		header.putDouble(maxLoad);
+
+		//The hash codes and values were written in this byte order, so the loader must read them the same way.
+		header.put(chunks[0].order() == ByteOrder.BIG_ENDIAN ? (byte) 1 : (byte) 0);
+		header.clear();
+
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			writeFully(channel, header);
+			
+			for(ByteBuffer chunk : chunks)
+			{
+				ByteBuffer data = chunk.duplicate();
+				data.clear();
+				writeFully(channel, data);
+			}
+		}
+	}
+	
+	/**
+	 * Opens a snapshot written by writeSnapshot by memory-mapping its buffers.
+	 * Nothing is read or rehashed up front. Lookups work straight away and the pages are faulted in by the operating system as they are touched.
+	 * The buffers are mapped copy-on-write, so a put or remove only copies the pages it touches and the file is never changed.
+	 * Mapping a file copy-on-write needs it to be opened for writing, even though nothing is written to it.
+	 * @param file The snapshot file.
+	 * @return A map whose table is the mapped file.
+	 * @throws IOException if the file cannot be read or is not a valid snapshot.
+	 */
+	public static OffHeapHashMap loadSnapshot(Path file) throws IOException {
+
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			ByteBuffer header = ByteBuffer.allocate(SNAPSHOT_HEADER);
+			while(header.hasRemaining())
+			{
+				if(channel.read(header) < 0)
+					throw new IOException("The snapshot header is truncated.");
+			}
+			header.flip();
+			
+			if(header.getInt() != SNAPSHOT_MAGIC)
+				throw new IOException("The file is not a snapshot.");
+			if(header.getInt() != SNAPSHOT_VERSION)
+				throw new IOException("The snapshot version is not supported.");
+			
+			int keyWidth = header.getInt();
+			int valueWidth = header.getInt();
+			int capacity = header.getInt();
+			int numChunks = header.getInt();
+			int numElements = header.getInt();
+			int tableSize = header.getInt();
+			double maxLoad = header.getDouble();
+			ByteOrder order = header.get() == 1 ? ByteOrder.BIG_ENDIAN : ByteOrder.LITTLE_ENDIAN;
+			
+			OffHeapHashMap map = new OffHeapHashMap(keyWidth, valueWidth, 1, maxLoad);
+			
+			if(numChunks < 1 || capacity < numChunks || Integer.bitCount(capacity) != 1 || Integer.bitCount(numChunks) != 1)
+				throw new IOException("The snapshot layout is corrupt.");
+			
+			long chunkBytes = (long) (capacity / numChunks) * map.slotWidth;
+			if(channel.size() != SNAPSHOT_HEADER + chunkBytes * numChunks)
+				throw new IOException("The snapshot size does not match its header.");
+			
+			ByteBuffer[] chunks = new ByteBuffer[numChunks];
+			for(int i = 0; i < numChunks; i++)
+				chunks[i] = channel.map(FileChannel.MapMode.PRIVATE, SNAPSHOT_HEADER + i * chunkBytes, chunkBytes).order(order);
+			
+			//The mappings stay valid after the channel is closed.
+			map.setTable(chunks, capacity);
+			map.numElements = numElements;
+			map.tableSize = tableSize;
+			
+			return map;
+		}
+	}
+	
+	/**
+	 * Writes every remaining byte of a buffer to a channel.
+	 * @param channel The channel being written.
+	 * @param data The bytes being written.
+	 * @throws IOException if the channel cannot be written.
+	 */
+	private static void writeFully(FileChannel channel, ByteBuffer data) throws IOException {
+
+		while(data.hasRemaining())
+			channel.write(data);
+	}
+	
+	/**
+	 * Removes every element from the map.
+	 */
+	public void clear() {
+
+		allocate(tableSize);
+		numElements = 0;
+	}
+
+	/**
+	 * Checks to see if the map is empty.
+	 * @return True if the map has no elements, false otherwise.
+	 */
+	public boolean isEmpty() {
+
+		return numElements == 0;
+	}
+
+	/**
+	 * Returns the number of elements in the map.
+	 * @return The number of elements in the map.
+	 */
+	public int size() {
+
+		return numElements;
+	}
+
+	/**
+	 * Returns the number of slots in the table.
+	 * @return The number of slots in the table.
+	 */
+	public int capacity() {
+
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of bytes in every key.
+	 * @return The key width.
+	 */
+	public int keyWidth() {
+
+		return keyWidth;
+	}
+
+	/**
+	 * Returns the number of bytes in every value.
+	 * @return The value width.
+	 */
+	public int valueWidth() {
+
+		return valueWidth;
+	}
+
+	/**
+	 * Checks to see if a key is in the map.
+	 * @param key The key being looked for.
+	 * @return True if the key is in the map, false otherwise.
+	 * @throws IllegalArgumentException if the key does not have the key width.
+	 */
+	public boolean containsKey(byte[] key) {
+
+		checkKey(key);
+		return find(key, hash(key)) >= 0;
+	}
+
+	/**
+	 * Copies the value of a key into a caller-supplied array, so that no object is created by the lookup.
+	 * @param key The key being looked for.
+	 * @param dst The array receiving the value, which must be at least the value width long.
+	 * @return True if the key was found and its value copied, false otherwise.
+	 * @throws IllegalArgumentException if the key does not have the key width or the array is too short.
+	 */
+	public boolean get(byte[] key, byte[] dst) {
+
+		checkKey(key);
+		if(dst.length < valueWidth)
+			throw new IllegalArgumentException("The destination must hold at least " + valueWidth + " bytes.");
+
+		int slot = find(key, hash(key));
+		if(slot < 0)
+			return false;
+
+		ByteBuffer chunk = chunkOf(slot);
+		int offset = offsetOf(slot) + KEY_OFFSET + keyWidth;
+		for(int i = 0; i < valueWidth; i++)
+			dst[i] = chunk.get(offset + i);
+
+		return true;
+	}
+
+	/**
+	 * Reads a long straight out of the value of a key, without copying the value.
+	 * @param key The key being looked for.
+	 * @param valueOffset The byte offset of the long inside the value.
+	 * @param defaultValue The value returned if the key is not in the map.
+	 * @return The long at the offset, in native byte order, or the default value.
+	 * @throws IllegalArgumentException if the key does not have the key width.
+	 * @throws IndexOutOfBoundsException if the long does not fit inside the value.
+	 */
+	public long getLong(byte[] key, int valueOffset, long defaultValue) {
+
+		checkKey(key);
+		checkField(valueOffset, Long.BYTES);
+
+		int slot = find(key, hash(key));
+		if(slot < 0)
+			return defaultValue;
+
+		return chunkOf(slot).getLong(offsetOf(slot) + KEY_OFFSET + keyWidth + valueOffset);
+	}
+
+	/**
+	 * Reads an int straight out of the value of a key, without copying the value.
+	 * @param key The key being looked for.
+	 * @param valueOffset The byte offset of the int inside the value.
+	 * @param defaultValue The value returned if the key is not in the map.
+	 * @return The int at the offset, in native byte order, or the default value.
+	 * @throws IllegalArgumentException if the key does not have the key width.
+	 * @throws IndexOutOfBoundsException if the int does not fit inside the value.
+	 */
+	public int getInt(byte[] key, int valueOffset, int defaultValue) {
+
+		checkKey(key);
+		checkField(valueOffset, Integer.BYTES);
+
+		int slot = find(key, hash(key));
+		if(slot < 0)
+			return defaultValue;
+
+		return chunkOf(slot).getInt(offsetOf(slot) + KEY_OFFSET + keyWidth + valueOffset);
+	}
+
+	/**
+	 * Associates a value with a key. Both are copied into the table.
+	 * @param key The key being added or updated.
+	 * @param value The value stored with the key.
+	 * @return True if the key was added, false if the value of an existing key was replaced.
+	 * @throws IllegalArgumentException if the key or value does not have the right width.
+	 */
+	public boolean put(byte[] key, byte[] value) {
+
+		checkKey(key);
+		if(value.length != valueWidth)
+			throw new IllegalArgumentException("The value must be " + valueWidth + " bytes.");
+
+		int hash = hash(key);
+		int slot = slotFor(key, hash);
+		ByteBuffer chunk = chunkOf(slot);
+		int offset = offsetOf(slot);
+		boolean added = chunk.get(offset) == EMPTY;
+
+		if(added)
+		{
+			chunk.put(offset, FULL);
+			chunk.putInt(offset + HASH_OFFSET, hash);
+			for(int i = 0; i < keyWidth; i++)
+				chunk.put(offset + KEY_OFFSET + i, key[i]);
+		}
+
+		offset += KEY_OFFSET + keyWidth;
+		for(int i = 0; i < valueWidth; i++)
+			chunk.put(offset + i, value[i]);
+
+		if(added)
+		{
+			numElements++;
+
+			//Rehashes if after adding, the table's load is greater than max load.
+			if((numElements / (double) capacity) > maxLoad)
+				rehash(capacity * 2);
+		}
+
+		return added;
+	}
+
+	/**
+	 * Removes a key from the map.
+	 * @param key The key being removed.
+	 * @return True if the key was removed, false if it was not in the map.
+	 * @throws IllegalArgumentException if the key does not have the key width.
+	 */
+	public boolean remove(byte[] key) {
+
+		checkKey(key);
+
+		int gap = find(key, hash(key));
+		if(gap < 0)
+			return false;
+
+		int mask = capacity - 1;
+		int slot = (gap + 1) & mask;
+
+		//Every following element that may move back without passing its home slot does so, and the run ends at an empty slot.
+		while(chunkOf(slot).get(offsetOf(slot)) != EMPTY)
+		{
+			int home = chunkOf(slot).getInt(offsetOf(slot) + HASH_OFFSET) & mask;
+
+			if(((slot - home) & mask) >= ((slot - gap) & mask))
+			{
+				copySlot(chunkOf(slot), offsetOf(slot), chunkOf(gap), offsetOf(gap));
+				gap = slot;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		chunkOf(gap).put(offsetOf(gap), EMPTY);
+		numElements--;
+
+		return true;
+	}
+
+	/**
+	 * Increases or decreases the size of the map to the smallest power of two larger than the requested size, and moves all elements to their new locations relative to the new size.
+	 * Slots are copied byte for byte using their stored hash codes, so no key is ever turned into an object.
+	 * @param size The requested size for the hash table.
+	 * @return True if rehashing was successful, false otherwise.
+	 */
+	public boolean rehash(int size) {
+
+		int newSize = HashMap.tableSizeFor(size);
+
+		//Returns false if the new size would increase the load.
+		if((numElements / (double) newSize) > maxLoad)
+			return false;
+
+		ByteBuffer[] oldChunks = chunks;
+		int oldCapacity = capacity;
+		int oldShift = chunkShift;
+		allocate(newSize);
+
+		int mask = newSize - 1;
+		int oldMask = (1 << oldShift) - 1;
+
+		for(int i = 0; i < oldCapacity; i++)
+		{
+			ByteBuffer from = oldChunks[i >>> oldShift];
+			int fromOffset = (i & oldMask) * slotWidth;
+
+			if(from.get(fromOffset) == EMPTY)
+				continue;
+
+			int slot = from.getInt(fromOffset + HASH_OFFSET) & mask;
+			while(chunkOf(slot).get(offsetOf(slot)) != EMPTY)
+				slot = (slot + 1) & mask;
+
+			copySlot(from, fromOffset, chunkOf(slot), offsetOf(slot));
+		}
+
+		return true;
+	}
+
+	/**
+	 * Copies one whole slot.
+	 * @param from The buffer holding the slot being copied.
+	 * @param fromOffset The offset of the slot being copied.
+	 * @param to The buffer receiving the copy.
+	 * @param toOffset The offset of the slot receiving the copy.
+	 */
+	private void copySlot(ByteBuffer from, int fromOffset, ByteBuffer to, int toOffset) {
+
+		int i = 0;
+		for(; i + Long.BYTES <= slotWidth; i += Long.BYTES)
+			to.putLong(toOffset + i, from.getLong(fromOffset + i));
+		for(; i < slotWidth; i++)
+			to.put(toOffset + i, from.get(fromOffset + i));
+	}
+
+	/**
+	 * Helper method that walks the probing sequence of a key.
+	 * @param key The key being looked for.
+	 * @param hash The hash code of the key.
+	 * @return The slot holding the key, or the empty slot that ends its probing sequence.
+	 */
+	private int slotFor(byte[] key, int hash) {
+
+		int mask = capacity - 1;
+		int slot = hash & mask;
+
+		while(true)
+		{
+			ByteBuffer chunk = chunkOf(slot);
+			int offset = offsetOf(slot);
+
+			if(chunk.get(offset) == EMPTY || (chunk.getInt(offset + HASH_OFFSET) == hash && keyEquals(chunk, offset, key)))
+				return slot;
+
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	/**
+	 * Helper method that locates the slot of a key.
+	 * @param key The key being looked for.
+	 * @param hash The hash code of the key.
+	 * @return The index of the key, or -1 if it is not in the table.
+	 */
+	private int find(byte[] key, int hash) {
+
+		int slot = slotFor(key, hash);
+		return chunkOf(slot).get(offsetOf(slot)) == EMPTY ? -1 : slot;
+	}
+
+	/**
+	 * Compares the key stored in a slot with a key, byte by byte.
+	 * @param chunk The buffer holding the slot.
+	 * @param offset The offset of the slot.
+	 * @param key The key being compared.
+	 * @return True if the keys have the same bytes, false otherwise.
+	 */
+	private boolean keyEquals(ByteBuffer chunk, int offset, byte[] key) {
+
+		offset += KEY_OFFSET;
+		for(int i = 0; i < keyWidth; i++)
+		{
+			if(chunk.get(offset + i) != key[i])
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Returns the buffer holding a slot.
+	 * @param slot The slot number.
+	 * @return The buffer holding the slot.
+	 */
+	private ByteBuffer chunkOf(int slot) {
+
+		return chunks[slot >>> chunkShift];
+	}
+
+	/**
+	 * Returns the byte offset of a slot inside its buffer.
+	 * @param slot The slot number.
+	 * @return The offset of the slot's state byte.
+	 */
+	private int offsetOf(int slot) {
+
+		return (slot & ((1 << chunkShift) - 1)) * slotWidth;
+	}
+
+	/**
+	 * Hashes the bytes of a key and mixes the result so that every byte reaches the low bits the mask keeps.
+	 * @param key The key being hashed.
+	 * @return The mixed hash code.
+	 */
+	private static int hash(byte[] key) {
+
+		return HashMixer.MURMUR3.mix(Arrays.hashCode(key), 0);
+	}
+
+	/**
+	 * Makes sure a key has the key width.
+	 * @param key The key being checked.
+	 * @throws IllegalArgumentException if the key does not have the key width.
+	 */
+	private void checkKey(byte[] key) {
+
+		if(key.length != keyWidth)
+			throw new IllegalArgumentException("The key must be " + keyWidth + " bytes.");
+	}
+
+	/**
+	 * Makes sure a field read from a value stays inside the value.
+	 * @param valueOffset The byte offset of the field inside the value.
+	 * @param width The number of bytes in the field.
+	 * @throws IndexOutOfBoundsException if the field does not fit inside the value.
+	 */
+	private void checkField(int valueOffset, int width) {
+
+		if(valueOffset < 0 || valueOffset + width > valueWidth)
+			throw new IndexOutOfBoundsException("Offset " + valueOffset + " out of bounds!");
+	}
+}
@@ -0,0 +1,666 @@
+package myCollections;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import java.util.Collection; //for returning in the values() function only
+
+/**
+ * Map class that uses Robin Hood hashing with linear probing.
+ * Every element records how far it sits from its home slot, and an element that is closer to home gives its slot up to one that is further away.
+ * Removal shifts the following elements back instead of leaving bunnies/tombstones, so the table never needs to be cleaned.
+ * @author Renato Scudere
+ *
+ * @param <K> The generic type for the key.
+ * @param <V> The generic type for the value.
+ */
+public class RobinHoodHashMap<K,V> implements Map<K,V> {
+
+	/**
+	 * An array of key/value pairs used in the map. A null slot is empty.
+	 */
+	private HashMap.Pair<K,V>[] storage;
+
+	/**
+	 * The mixed hash code of the pair stored at the same index in storage.
+	 * Used to compute probe distances without calling hashCode again.
+	 */
+	private int[] hashes;
+
+	/**
+	 * The number of elements in the map.
+	 */
+	private int numElements = 0;
+
+	/**
+	 * Stores the maximum load the table can have before rehashing.
+	 */
+	private double maxLoad;
+
+	/**
+	 * Stores the original size of the table.
+	 */
+	private int tableSize;
+
+	/**
+	 * Counts the structural changes to the map so that iterators over the views can detect them.
+	 */
+	private int modCount = 0;
+
+	/**
+	 * Constructor creates a hash table with the smallest power of two larger than the requested size as its initial size.
+	 * It uses the default max load value of 0.5.
+	 * @param size The requested size for the hash table.
+	 */
+	public RobinHoodHashMap(int size) {
+
+		this(size, 0.5);
+	}
+
+	/**
+	 * Constructor creates a hash table with the smallest power of two larger than the requested size as its initial size.
+	 * It uses the max load value passed to the constructor.
+	 * @param size The requested size of the hash table.
+	 * @param maxLoad The max load value that the table must inhibit.
+	 * @throws IllegalArgumentException if the max load is not between 0 and 1, since linear probing needs at least one empty slot.
+	 */
+	public RobinHoodHashMap(int size, double maxLoad) {
+
+		if(!(maxLoad > 0 && maxLoad < 1))
+			throw new IllegalArgumentException("The max load must be between 0 and 1.");
+
+		tableSize = HashMap.tableSizeFor(size);
+		this.maxLoad = maxLoad;
+		allocate(tableSize);
+	}
+
+	/**
+	 * Creates new empty arrays of the given length.
+	 * @param length The length of the new table, which must be a power of two.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private void allocate(int length) {
+
+		storage = (HashMap.Pair<K, V>[]) new HashMap.Pair[length];
+		hashes = new int[length];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void clear() {
+
+		allocate(tableSize);
+		numElements = 0;
+		modCount++;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isEmpty() {
+
+		return numElements == 0;
+	}
+
+	/**
+	 * Returns the number of slots in the table.
+	 * @return The number of slots in the table.
+	 */
+	public int capacity() {
+
+		return storage.length;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int size() {
+
+		return numElements;
+	}
+
+	/**
+	 * Returns the largest distance any element currently sits from its home slot.
+	 * @return The longest probe sequence a successful lookup will walk.
+	 */
+	public int maxProbeDistance() {
+
+		int max = 0;
+		for(int i = 0; i < storage.length; i++)
+		{
+			if(storage[i] != null)
+				max = Math.max(max, distance(i, hashes[i]));
+		}
+
+		return max;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public V get(Object key) {
+		//Makes sure the key cannot be null.
+		if(key == null)
+			return null;
+
+		int index = find(key);
+
+		if(index < 0)
+			return null;
+		else
+			return storage[index].value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean containsKey(Object key) {
+
+		return key != null && find(key) >= 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public V put(K key, V value) {
+		if(key == null)
+			throw new NullPointerException("The key cannot be null.");
+
+		//Grows the table first so that the insertion below always has an empty slot to end on.
+		if(((numElements + 1) / (double)(storage.length)) > maxLoad)
+			rehash(storage.length * 2);
+
+		int hash = hash(key);
+		int mask = storage.length - 1;
+		int index = hash & mask;
+
+		//Walks forward until the key, an empty slot, or an element closer to its home than we are is found.
+		//Robin Hood ordering guarantees the key cannot appear after such an element.
+		for(int dist = 0; storage[index] != null; dist++)
+		{
+			if(hashes[index] == hash && key.equals(storage[index].key))
+			{
+				V oldVal = storage[index].value;
+				storage[index].value = value;
+				return oldVal;
+			}
+
+			if(distance(index, hashes[index]) < dist)
+				break;
+
+			index = (index + 1) & mask;
+		}
+
+		insert(index, new HashMap.Pair<>(key, value), hash);
+		numElements++;
+		modCount++;
+
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public V remove(Object key) {
+		//Makes sure the key cannot be null.
+		if(key == null)
+			return null;
+
+		int index = find(key);
+		if(index < 0)
+			return null;
+
+		V oldVal = storage[index].value;
+		int mask = storage.length - 1;
+		int next = (index + 1) & mask;
+
+		//Backward-shift deletion: every following element that is not in its home slot moves back by one.
+		//The run ends at an empty slot or at an element that is already home, which leaves no bunny/tombstone behind.
+		while(storage[next] != null && distance(next, hashes[next]) > 0)
+		{
+			storage[index] = storage[next];
+			hashes[index] = hashes[next];
+			index = next;
+			next = (next + 1) & mask;
+		}
+
+		storage[index] = null;
+		hashes[index] = 0;
+		numElements--;
+		modCount++;
+
+		return oldVal;
+	}
+
+	/**
+	 * Increases or decreases the size of the map to the smallest power of two larger than the requested size, and moves all elements to their new locations relative to the new size.
+	 * @param size The requested size for the hash table.
+	 * @return True if rehashing was successful, false otherwise.
+	 */
+	public boolean rehash(int size) {
+
+		int newSize = HashMap.tableSizeFor(size);
+
+		//Returns false if the new size would increase the load.
+		if((numElements / (double)(newSize)) > maxLoad || numElements == newSize)
+			return false;
+
+		HashMap.Pair<K, V>[] oldStorage = storage;
+		int[] oldHashes = hashes;
+		allocate(newSize);
+
+		int mask = newSize - 1;
+		for(int i = 0; i < oldStorage.length; i++)
+		{
+			if(oldStorage[i] != null)
+				insert(oldHashes[i] & mask, oldStorage[i], oldHashes[i]);
+		}
+
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Helper method for get, containsKey and remove that locates the slot of a key.
+	 * The search stops as soon as it reaches an element that is closer to its home slot than the key would be.
+	 * @param key The key being looked for.
+	 * @return The index of the key, or -1 if it is not in the table.
+	 */
+	private int find(Object key) {
+
+		int hash = hash(key);
+		int mask = storage.length - 1;
+		int index = hash & mask;
+
+		for(int dist = 0; storage[index] != null && distance(index, hashes[index]) >= dist; dist++)
+		{
+			if(hashes[index] == hash && key.equals(storage[index].key))
+				return index;
+
+			index = (index + 1) & mask;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Places a pair that is known not to be in the table, starting the search at the given slot.
+	 * Whenever the pair being carried is further from home than the occupant of a slot, the two are swapped and the occupant is carried on instead.
+	 * @param index The slot to start at.
+	 * @param pair The pair being placed.
+	 * @param hash The mixed hash code of the pair's key.
+	 */
+	private void insert(int index, HashMap.Pair<K, V> pair, int hash) {
+
+		int mask = storage.length - 1;
+		int dist = distance(index, hash);
+
+		while(storage[index] != null)
+		{
+			int existing = distance(index, hashes[index]);
+
+			//Takes from the rich (close to home) and gives to the poor (far from home).
+			if(existing < dist)
+			{
+				HashMap.Pair<K, V> tempPair = storage[index];
+				int tempHash = hashes[index];
+				storage[index] = pair;
+				hashes[index] = hash;
+				pair = tempPair;
+				hash = tempHash;
+				dist = existing;
+			}
+
+			index = (index + 1) & mask;
+			dist++;
+		}
+
+		storage[index] = pair;
+		hashes[index] = hash;
+	}
+
+	/**
+	 * Computes how far the element at a slot is from its home slot.
+	 * @param index The slot the element is stored in.
+	 * @param hash The mixed hash code of the element.
+	 * @return The number of probe steps between the home slot and the slot.
+	 */
+	private int distance(int index, int hash) {
+
+		return (index - hash) & (storage.length - 1);
+	}
+
+	/**
+	 * Mixes the hash code of a key so that weak low bits still spread over the table.
+	 * @param key The key being hashed.
+	 * @return The mixed hash code.
+	 */
+	private static int hash(Object key) {
+
+		return HashMixer.MURMUR3.mix(key.hashCode(), 0);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The set is a live view backed by the table, so removing a key from it removes the key from the map.
+	 */
+	public Set<K> keySet() {
+
+		return new AbstractSet<K>() {
+			public Iterator<K> iterator() {
+				return new TableIterator<K>() {
+					public K next() { return nextPair().key; }
+				};
+			}
+			public int size() { return numElements; }
+			public boolean contains(Object o) { return containsKey(o); }
+			public boolean remove(Object o) {
+
+				//The size tells whether a key was removed even when its value was null.
+				int before = numElements;
+				RobinHoodHashMap.this.remove(o);
+				return numElements != before;
+			}
+			public void clear() { RobinHoodHashMap.this.clear(); }
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String toString() {
+
+		StringBuilder s = new StringBuilder();
+		for(int i = 0; i < storage.length; i++) {
+			if(storage[i] != null)  {
+				s.append("[");
+				s.append(i);
+				s.append("]: ");
+				s.append(storage[i]);
+				s.append("\n");
+			}
+		}
+		if(s.length() > 0)
+			s.deleteCharAt(s.length()-1);
+		return s.toString();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The collection is a live view backed by the table.
+	 */
+	public Collection<V> values() {
+
+		return new AbstractCollection<V>() {
+			public Iterator<V> iterator() {
+				return new TableIterator<V>() {
+					public V next() { return nextPair().value; }
+				};
+			}
+			public int size() { return numElements; }
+			public boolean contains(Object o) { return containsValue(o); }
+			public void clear() { RobinHoodHashMap.this.clear(); }
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The set is a live view backed by the table, and its entries are the pairs of the table, so setting their value changes the map.
+	 */
+	public Set<Map.Entry<K,V>> entrySet() {
+
+		return new AbstractSet<Map.Entry<K,V>>() {
+			public Iterator<Map.Entry<K,V>> iterator() {
+				return new TableIterator<Map.Entry<K,V>>() {
+					public Map.Entry<K,V> next() { return new PairEntry(nextPair()); }
+				};
+			}
+			public int size() { return numElements; }
+			public boolean contains(Object o) {
+
+				if(!(o instanceof Map.Entry) || ((Map.Entry<?,?>) o).getKey() == null)
+					return false;
+
+				Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+				int index = find(e.getKey());
+				return index >= 0 && Objects.equals(storage[index].value, e.getValue());
+			}
+			public boolean remove(Object o) {
+
+				if(!contains(o))
+					return false;
+
+				RobinHoodHashMap.this.remove(((Map.Entry<?,?>) o).getKey());
+				return true;
+			}
+			public void clear() { RobinHoodHashMap.this.clear(); }
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The table is grown once up front to hold every pair of the other map, so no rehash happens while they are added.
+	 */
+	public void	putAll(Map<? extends K,? extends V> m) {
+
+		//Sizes for the worst case where none of the keys are in this map yet.
+		long required = (long) numElements + m.size();
+		if(required / (double) storage.length > maxLoad)
+			rehash((int) Math.min(HashMap.MAXIMUM_CAPACITY, (long) Math.ceil(required / maxLoad)));
+
+		for(Map.Entry<? extends K,? extends V> e : m.entrySet())
+			put(e.getKey(), e.getValue());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean containsValue(Object value) {
+
+		for(int i = 0; i < storage.length; i++)
+		{
+			if(storage[i] != null && Objects.equals(value, storage[i].value))
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean equals(Object o) {
+
+		if(o == this)
+			return true;
+		if(!(o instanceof Map))
+			return false;
+
+		Map<?,?> m = (Map<?,?>) o;
+		if(m.size() != numElements)
+			return false;
+
+		for(Map.Entry<K,V> e : entrySet())
+		{
+			V value = e.getValue();
+
+			if(value == null ? !(m.get(e.getKey()) == null && m.containsKey(e.getKey())) : !value.equals(m.get(e.getKey())))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int hashCode() {
+
+		int h = 0;
+		for(Map.Entry<K,V> e : entrySet())
+			h += e.hashCode();
+
+		return h;
+	}
+
+	/**
+	 * Entry returned by the entrySet iterator. It wraps the pair of a slot, so setting its value writes to the table.
+	 * A pair that was removed is no longer in the table, and setting its value only changes the entry.
+	 */
+	private class PairEntry implements Map.Entry<K,V> {
+
+		/**
+		 * The pair of the slot.
+		 */
+		private final HashMap.Pair<K, V> pair;
+
+		/**
+		 * Constructor that wraps a pair.
+		 * @param pair The pair of the slot.
+		 */
+		PairEntry(HashMap.Pair<K, V> pair) { this.pair = pair; }
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public K getKey() { return pair.key; }
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public V getValue() { return pair.value; }
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public V setValue(V value) {
+
+			V oldVal = pair.value;
+			pair.value = value;
+			return oldVal;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean equals(Object o) {
+
+			if(!(o instanceof Map.Entry))
+				return false;
+
+			Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+			return Objects.equals(pair.key, e.getKey()) && Objects.equals(pair.value, e.getValue());
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public int hashCode() { return Objects.hashCode(pair.key) ^ Objects.hashCode(pair.value); }
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public String toString() { return "<" + pair.key + "," + pair.value + ">"; }
+	}
+
+	/**
+	 * Iterator over the pairs of the table.
+	 * The walk starts just after an empty slot and goes once around the table. Backward-shift deletion only moves pairs back within their run,
+	 * and no run crosses that empty slot, so a pair shifted into the slot just removed has not been visited yet and is read next.
+	 * @param <E> The type of element returned by the iterator.
+	 */
+	private abstract class TableIterator<E> implements Iterator<E> {
+
+		/**
+		 * The empty slot just before the first slot walked.
+		 */
+		private final int start;
+
+		/**
+		 * The number of slots walked so far.
+		 */
+		private int walked = 0;
+
+		/**
+		 * The number of pairs returned so far, less the ones removed.
+		 */
+		private int returned = 0;
+
+		/**
+		 * The pair returned by the last call to nextPair, or null if it was removed.
+		 */
+		private HashMap.Pair<K, V> current;
+
+		/**
+		 * The mod count the map must still have for the iterator to be valid.
+		 */
+		private int expectedModCount = modCount;
+
+		/**
+		 * Constructor that finds an empty slot to start after. The max load keeps at least one slot empty.
+		 */
+		TableIterator() {
+
+			int i = 0;
+			while(storage[i] != null)
+				i++;
+
+			start = i;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean hasNext() {
+
+			return returned < numElements;
+		}
+
+		/**
+		 * Returns the next pair.
+		 * @return The next pair in slot order.
+		 * @throws NoSuchElementException if there are no more pairs.
+		 * @throws ConcurrentModificationException if the map was changed other than through this iterator.
+		 */
+		HashMap.Pair<K, V> nextPair() {
+
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if(!hasNext())
+				throw new NoSuchElementException();
+
+			int mask = storage.length - 1;
+			while(storage[(start + 1 + walked) & mask] == null)
+				walked++;
+
+			current = storage[(start + 1 + walked++) & mask];
+			returned++;
+			return current;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void remove() {
+
+			if(current == null)
+				throw new IllegalStateException();
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+
+			RobinHoodHashMap.this.remove(current.key);
+			current = null;
+			expectedModCount = modCount;
+
+			//The slot just removed may now hold the next pair of its run.
+			walked--;
+			returned--;
+		}
+	}
+}
@@ -0,0 +1,735 @@
+package myCollections;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import java.util.Collection; //for returning in the values() function only
+
+/**
+ * Map that holds its values softly, so the garbage collector may drop a pair under memory pressure once its value is not strongly reachable anywhere else.
+ * It uses the same power-of-two table and triangular probing as HashSet. Every entry is a soft reference to its value that also holds the key
+ * and its hash code, so a cleared entry can still be found in the table.
+ * Cleared entries are taken from a reference queue at the start of each operation and turned into bunnies/tombstones, which the next
+ * compaction rehash reclaims together.
+ * @author Renato Scudere
+ *
+ * @param <K> The generic type for the key.
+ * @param <V> The generic type for the value.
+ */
+public class SoftValueHashMap<K,V> implements Map<K,V> {
+
+	/**
+	 * Marks a slot whose entry was removed or cleared. Bunnies/tombstones keep the probing sequence intact for later lookups.
+	 */
+	private static final Object TOMBSTONE = new Object();
+
+	/**
+	 * Stores the maximum load the table can have before rehashing.
+	 */
+	private static final double MAX_LOAD = 0.5;
+
+	/**
+	 * Stores the load of live entries plus bunnies/tombstones that triggers a compaction rehash.
+	 */
+	private static final double COMPACTION_THRESHOLD = 0.75;
+
+	/**
+	 * The entries of the map. A null slot is empty and a TOMBSTONE slot was removed or cleared.
+	 */
+	private Object[] table;
+
+	/**
+	 * The queue the garbage collector adds entries to once their values are cleared.
+	 */
+	private final ReferenceQueue<V> queue = new ReferenceQueue<>();
+
+	/**
+	 * The number of entries in the table, including entries whose values were cleared but not yet taken from the queue.
+	 */
+	private int numElements = 0;
+
+	/**
+	 * The number of bunnies/tombstones in the table.
+	 */
+	private int numTombstones = 0;
+
+	/**
+	 * Stores the original size of the table.
+	 */
+	private final int tableSize;
+
+	/**
+	 * Counts the structural changes to the map so that iterators over the views can detect them.
+	 */
+	private int modCount = 0;
+
+	/**
+	 * Constructor that calls the single parameter constructor to set the size to 16.
+	 */
+	public SoftValueHashMap() {
+
+		this(16);
+	}
+
+	/**
+	 * Overloaded constructor that passes a size as an argument.
+	 * @param size The starting size of the table.
+	 */
+	public SoftValueHashMap(int size) {
+
+		tableSize = HashMap.tableSizeFor(size);
+		table = new Object[tableSize];
+	}
+
+	/**
+	 * Takes every cleared entry from the queue and turns its slot into a bunny/tombstone.
+	 * The key is dropped at once, and the slots are reclaimed in a single compaction once the bunnies/tombstones pass the threshold.
+	 */
+	@SuppressWarnings("unchecked")
+	private void expungeStaleEntries() {
+
+		for(Reference<? extends V> ref; (ref = queue.poll()) != null; )
+		{
+			Entry e = (Entry) ref;
+
+			//The entry may have been removed, replaced or dropped by a rehash already, in which case it is not in the table.
+			int slot = slotOf(e);
+			if(slot < 0)
+				continue;
+
+			e.key = null;
+			table[slot] = TOMBSTONE;
+			numElements--;
+			numTombstones++;
+		}
+
+		if(((numElements + numTombstones) / (double)(table.length)) > COMPACTION_THRESHOLD)
+			rehash(table.length);
+	}
+
+	/**
+	 * Helper method for expungeStaleEntries that locates an entry by identity, since its value is already gone.
+	 * @param e The entry being looked for.
+	 * @return The index of the entry, or -1 if it is not in the table.
+	 */
+	private int slotOf(Entry e) {
+
+		int mask = table.length - 1;
+		int index = HashMap.indexFor(e.hash, table.length);
+		int check = index;
+
+		for(int i = 1; i <= table.length && table[check] != null; i++)
+		{
+			if(table[check] == e)
+				return check;
+
+			check = HashMap.ProbeStrategy.TRIANGULAR.next(index, check, i, mask);
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Helper method that locates the slot of a key.
+	 * @param key The key being looked for.
+	 * @param hash The mixed hash code of the key.
+	 * @return The index of the key, or -1 if it is not in the table.
+	 */
+	@SuppressWarnings("unchecked")
+	private int find(Object key, int hash) {
+
+		int mask = table.length - 1;
+		int index = HashMap.indexFor(hash, table.length);
+		int check = index;
+
+		for(int i = 1; i <= table.length; i++)
+		{
+			Object o = table[check];
+			if(o == null)
+				return -1;
+
+			//A cleared entry has lost its value, so it never matches.
+			if(o != TOMBSTONE && ((Entry) o).hash == hash && key.equals(((Entry) o).key) && ((Entry) o).get() != null)
+				return check;
+
+			check = HashMap.ProbeStrategy.TRIANGULAR.next(index, check, i, mask);
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Helper method for rehash that finds the first empty slot in the probing sequence of a hash.
+	 * @param hash The mixed hash code of the key being placed.
+	 * @return The index of the empty slot.
+	 */
+	private int findEmpty(int hash) {
+
+		int mask = table.length - 1;
+		int index = HashMap.indexFor(hash, table.length);
+		int check = index;
+
+		for(int i = 1; table[check] != null; i++)
+			check = HashMap.ProbeStrategy.TRIANGULAR.next(index, check, i, mask);
+
+		return check;
+	}
+
+	/**
+	 * Mixes the hash code of a key so that weak low bits still spread over the table.
+	 * @param key The key being hashed.
+	 * @return The mixed hash code.
+	 */
+	private static int hash(Object key) {
+
+		return HashMixer.MURMUR3.mix(key.hashCode(), 0);
+	}
+
+	/**
+	 * Returns the number of slots in the table.
+	 * @return The number of slots in the table.
+	 */
+	public int capacity() {
+
+		return table.length;
+	}
+
+	/**
+	 * Increases or decreases the size of the table to the smallest power of two larger than the requested size, and moves all live entries
+	 * to their new locations relative to the new size. Entries whose values were cleared are dropped.
+	 * @param size The requested size for the hash table.
+	 * @return True if rehashing was successful, false otherwise.
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean rehash(int size) {
+
+		int newSize = HashMap.tableSizeFor(size);
+
+		//Returns false if the new size would increase the load.
+		if((numElements / (double)(newSize)) > MAX_LOAD)
+			return false;
+
+		Object[] old = table;
+		table = new Object[newSize];
+		numElements = 0;
+
+		for(int i = 0; i < old.length; i++)
+		{
+			if(old[i] == null || old[i] == TOMBSTONE)
+				continue;
+
+			Entry e = (Entry) old[i];
+			if(e.get() == null)
+			{
+				e.key = null;
+				continue;
+			}
+
+			table[findEmpty(e.hash)] = e;
+			numElements++;
+		}
+
+		numTombstones = 0;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void clear() {
+
+		//Entries already in the queue belong to the old table, so they are discarded with it.
+		while(queue.poll() != null)
+			;
+
+		table = new Object[tableSize];
+		numElements = 0;
+		numTombstones = 0;
+		modCount++;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The size may still count pairs whose values were cleared but not yet queued by the garbage collector.
+	 */
+	public int size() {
+
+		expungeStaleEntries();
+		return numElements;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isEmpty() {
+
+		return size() == 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		//Makes sure the key cannot be null.
+		if(key == null)
+			return null;
+
+		expungeStaleEntries();
+		int slot = find(key, hash(key));
+		return slot < 0 ? null : ((Entry) table[slot]).get();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean containsKey(Object key) {
+
+		if(key == null)
+			return false;
+
+		expungeStaleEntries();
+		return find(key, hash(key)) >= 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The key is searched for and an open slot is found in the same pass through the probing sequence.
+	 * @throws NullPointerException if the value is null, since a null value could not be told apart from a cleared one.
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(K key, V value) {
+		if(key == null)
+			throw new NullPointerException("The key cannot be null.");
+		if(value == null)
+			throw new NullPointerException("The value cannot be null.");
+
+		expungeStaleEntries();
+		int hash = hash(key);
+
+		//The first bunny/tombstone on the way is remembered so that it can be reused if the key is not found.
+		int mask = table.length - 1;
+		int index = HashMap.indexFor(hash, table.length);
+		int check = index;
+		int open = -1;
+
+		for(int i = 1; i <= table.length; i++)
+		{
+			Object o = table[check];
+
+			if(o == null)
+			{
+				if(open < 0)
+					open = check;
+				break;
+			}
+			else if(o == TOMBSTONE)
+			{
+				if(open < 0)
+					open = check;
+			}
+			else if(((Entry) o).hash == hash && key.equals(((Entry) o).key))
+			{
+				//A soft reference cannot be pointed at another value, so the entry is replaced in its slot.
+				//The old entry is no longer in the table, so it is skipped if it is queued later.
+				Entry e = (Entry) o;
+				V oldVal = e.get();
+				table[check] = e.replacement = new Entry(key, value, hash);
+				return oldVal;
+			}
+
+			check = HashMap.ProbeStrategy.TRIANGULAR.next(index, check, i, mask);
+		}
+
+		if(table[open] == TOMBSTONE)
+			numTombstones--;
+
+		table[open] = new Entry(key, value, hash);
+		numElements++;
+		modCount++;
+
+		//Rehashes if after adding, the table's load is greater than max load.
+		//Otherwise compacts in place if the live entries and the bunnies/tombstones together are over the threshold.
+		if((numElements / (double)(table.length)) > MAX_LOAD)
+			rehash(table.length * 2);
+		else if(((numElements + numTombstones) / (double)(table.length)) > COMPACTION_THRESHOLD)
+			rehash(table.length);
+
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(Object key) {
+		//Makes sure the key cannot be null.
+		if(key == null)
+			return null;
+
+		expungeStaleEntries();
+		int slot = find(key, hash(key));
+		if(slot < 0)
+			return null;
+
+		V oldVal = ((Entry) table[slot]).get();
+		removeAt(slot);
+		return oldVal;
+	}
+
+	/**
+	 * Helper method for remove and the iterators that turns the slot of an entry into a bunny/tombstone.
+	 * @param slot The index of the entry.
+	 */
+	private void removeAt(int slot) {
+
+		table[slot] = TOMBSTONE;
+		numElements--;
+		numTombstones++;
+		modCount++;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("unchecked")
+	public boolean containsValue(Object value) {
+
+		expungeStaleEntries();
+		for(Object o : table)
+		{
+			if(o != null && o != TOMBSTONE && value != null && value.equals(((Entry) o).get()))
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void	putAll(Map<? extends K,? extends V> m) {
+
+		for(Map.Entry<? extends K,? extends V> e : m.entrySet())
+			put(e.getKey(), e.getValue());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Set<K> keySet() {
+
+		return new AbstractSet<K>() {
+			public Iterator<K> iterator() {
+				return new EntryIterator<K>() {
+					public K next() { return nextEntry().getKey(); }
+				};
+			}
+			public int size() { return SoftValueHashMap.this.size(); }
+			public boolean contains(Object o) { return containsKey(o); }
+			public boolean remove(Object o) {
+
+				if(!containsKey(o))
+					return false;
+
+				SoftValueHashMap.this.remove(o);
+				return true;
+			}
+			public void clear() { SoftValueHashMap.this.clear(); }
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Collection<V> values() {
+
+		return new AbstractCollection<V>() {
+			public Iterator<V> iterator() {
+				return new EntryIterator<V>() {
+					public V next() { nextEntry(); return currentValue; }
+				};
+			}
+			public int size() { return SoftValueHashMap.this.size(); }
+			public boolean contains(Object o) { return containsValue(o); }
+			public void clear() { SoftValueHashMap.this.clear(); }
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * Setting the value of a returned entry changes the map.
+	 */
+	public Set<Map.Entry<K,V>> entrySet() {
+
+		return new AbstractSet<Map.Entry<K,V>>() {
+			public Iterator<Map.Entry<K,V>> iterator() {
+				return new EntryIterator<Map.Entry<K,V>>() {
+					public Map.Entry<K,V> next() { return nextEntry(); }
+				};
+			}
+			public int size() { return SoftValueHashMap.this.size(); }
+			public boolean contains(Object o) {
+
+				if(!(o instanceof Map.Entry))
+					return false;
+
+				Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+				return containsKey(e.getKey()) && Objects.equals(get(e.getKey()), e.getValue());
+			}
+			public void clear() { SoftValueHashMap.this.clear(); }
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean equals(Object o) {
+
+		if(o == this)
+			return true;
+		if(!(o instanceof Map))
+			return false;
+
+		Map<?,?> m = (Map<?,?>) o;
+		if(m.size() != size())
+			return false;
+
+		for(Map.Entry<K,V> e : entrySet())
+		{
+			V value = e.getValue();
+
+			if(value == null ? !(m.get(e.getKey()) == null && m.containsKey(e.getKey())) : !value.equals(m.get(e.getKey())))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int hashCode() {
+
+		int h = 0;
+		for(Map.Entry<K,V> e : entrySet())
+			h += e.hashCode();
+
+		return h;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String toString() {
+
+		StringBuilder s = new StringBuilder("{");
+		for(Map.Entry<K,V> e : entrySet())
+			s.append(e.getKey()).append("=").append(e.getValue()).append(", ");
+
+		if(s.length() > 1)
+			s.setLength(s.length() - 2);
+		return s.append("}").toString();
+	}
+
+	/**
+	 * Entry that holds its key strongly and its value softly.
+	 */
+	private class Entry extends SoftReference<V> implements Map.Entry<K,V> {
+
+		/**
+		 * The mixed hash code of the key.
+		 */
+		final int hash;
+
+		/**
+		 * The key of the pair, dropped once the entry is taken from the queue.
+		 */
+		K key;
+
+		/**
+		 * The entry that took this one's place in the table when the value of the key was changed, or null if there is none.
+		 */
+		Entry replacement;
+
+		/**
+		 * Constructor that creates an entry registered with the queue of the map.
+		 * @param key The key of the pair.
+		 * @param value The value of the pair.
+		 * @param hash The mixed hash code of the key.
+		 */
+		Entry(K key, V value, int hash) {
+
+			super(value, queue);
+			this.key = key;
+			this.hash = hash;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public K getKey() { return key; }
+
+		/**
+		 * {@inheritDoc}
+		 * An entry whose value was changed reads the value of the entry that replaced it, so it keeps following the map.
+		 */
+		public V getValue() {
+
+			Entry e = this;
+			while(e.replacement != null)
+				e = e.replacement;
+
+			return e.get();
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * A soft reference cannot be pointed at another value, so the entry is replaced in the map by a new one, which getValue then reads.
+		 */
+		public V setValue(V value) { return put(key, value); }
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean equals(Object o) {
+
+			if(!(o instanceof Map.Entry))
+				return false;
+
+			Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+			return Objects.equals(key, e.getKey()) && Objects.equals(getValue(), e.getValue());
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public int hashCode() { return Objects.hashCode(key) ^ Objects.hashCode(getValue()); }
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public String toString() { return key + "=" + getValue(); }
+	}
+
+	/**
+	 * Iterator over the entries whose values have not been cleared.
+	 * The value of the next entry is held strongly, so an entry reported by hasNext cannot be cleared before next returns it.
+	 * @param <E> The type of element returned by the iterator.
+	 */
+	private abstract class EntryIterator<E> implements Iterator<E> {
+
+		/**
+		 * The slot of the next live entry, or the length of the table if there is none.
+		 */
+		private int next = -1;
+
+		/**
+		 * The next live entry, or null if there is none.
+		 */
+		private Entry nextEntry;
+
+		/**
+		 * The value of the next live entry, held strongly until it is returned.
+		 */
+		private V nextValue;
+
+		/**
+		 * The value of the entry returned by the last call to nextEntry, held strongly so it cannot be cleared while the caller reads it.
+		 */
+		V currentValue;
+
+		/**
+		 * The slot of the entry returned by the last call to nextEntry, or -1 if it was removed.
+		 */
+		private int current = -1;
+
+		/**
+		 * The mod count the map must still have for the iterator to be valid.
+		 */
+		private int expectedModCount;
+
+		/**
+		 * Constructor that drains the queue and then moves to the first live entry.
+		 */
+		EntryIterator() {
+
+			expungeStaleEntries();
+			expectedModCount = modCount;
+			advance();
+		}
+
+		/**
+		 * Moves to the next slot holding an entry whose value has not been cleared.
+		 */
+		@SuppressWarnings("unchecked")
+		private void advance() {
+
+			nextEntry = null;
+			nextValue = null;
+			while(++next < table.length)
+			{
+				Object o = table[next];
+				if(o != null && o != TOMBSTONE && (nextValue = ((Entry) o).get()) != null)
+				{
+					nextEntry = (Entry) o;
+					return;
+				}
+			}
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean hasNext() {
+
+			return nextEntry != null;
+		}
+
+		/**
+		 * Returns the next live entry.
+		 * @return The entry.
+		 * @throws NoSuchElementException if there are no more entries.
+		 * @throws ConcurrentModificationException if the map was changed other than through this iterator.
+		 */
+		Entry nextEntry() {
+
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if(nextEntry == null)
+				throw new NoSuchElementException();
+
+			current = next;
+			Entry e = nextEntry;
+			currentValue = nextValue;
+			advance();
+			return e;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void remove() {
+
+			if(current < 0)
+				throw new IllegalStateException();
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+
+			//The entry may have been cleared and expunged by another operation since it was returned.
+			if(table[current] != TOMBSTONE)
+				removeAt(current);
+			current = -1;
+			expectedModCount = modCount;
+		}
+	}
+}
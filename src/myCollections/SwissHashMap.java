@@ -0,0 +1,827 @@
+package myCollections;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+import java.util.Collection; //for returning in the values() function only
+
+/**
+ * Map class in the style of SwissTable that keeps one control byte per slot next to its parallel key and value arrays.
+ * A full slot's control byte holds 7 bits of the key's hash, and the other values mark empty and deleted slots.
+ * The control bytes are split into groups of 16, and a whole group is scanned at once by reading it as two longs and testing every byte in parallel.
+ * Most slots whose key cannot match are rejected this way without ever loading the key.
+ * @author Renato Scudere
+ *
+ * @param <K> The generic type for the key.
+ * @param <V> The generic type for the value.
+ */
+public class SwissHashMap<K,V> implements Map<K,V> {
+
+	/**
+	 * The number of slots in a group.
+	 */
+	private static final int GROUP_WIDTH = 16;
+
+	/**
+	 * Control byte of a slot that has never held a key. Lookups stop at the first group that has one.
+	 */
+	private static final byte EMPTY = (byte) 0x80;
+
+	/**
+	 * Control byte of a slot whose key was removed, the bunny/tombstone of this table.
+	 */
+	private static final byte DELETED = (byte) 0xFE;
+
+	/**
+	 * A long with the lowest bit of every byte set.
+	 */
+	private static final long LSBS = 0x0101010101010101L;
+
+	/**
+	 * A long with the highest bit of every byte set.
+	 */
+	private static final long MSBS = 0x8080808080808080L;
+
+	/**
+	 * Reads eight control bytes as one long. Little endian order keeps the lowest slot in the lowest byte.
+	 */
+	private static final VarHandle CONTROL_WORD = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+	/**
+	 * The control bytes of the table, one per slot.
+	 */
+	private byte[] ctrl;
+
+	/**
+	 * The keys in the map, stored at the same index as their control byte.
+	 */
+	private Object[] keys;
+
+	/**
+	 * The values in the map, stored at the same index as their key.
+	 */
+	private Object[] values;
+
+	/**
+	 * The number of elements in the map.
+	 */
+	private int numElements = 0;
+
+	/**
+	 * The number of slots marked as deleted.
+	 */
+	private int numTombstones = 0;
+
+	/**
+	 * The number of times the map was changed structurally, so that iterators can fail fast.
+	 */
+	private int modCount = 0;
+
+	/**
+	 * Stores the maximum load the table can have before rehashing. Deleted slots count toward it.
+	 */
+	private double maxLoad;
+
+	/**
+	 * Stores the original size of the table.
+	 */
+	private int tableSize;
+
+	/**
+	 * Constructor creates a hash table with the smallest power of two larger than the requested size as its initial size.
+	 * It uses the default max load value of 0.875, since scanning whole groups keeps long probing sequences cheap.
+	 * @param size The requested size for the hash table.
+	 */
+	public SwissHashMap(int size) {
+
+		this(size, 0.875);
+	}
+
+	/**
+	 * Constructor creates a hash table with the smallest power of two larger than the requested size as its initial size.
+	 * The table never has fewer slots than one group.
+	 * It uses the max load value passed to the constructor.
+	 * @param size The requested size of the hash table.
+	 * @param maxLoad The max load value that the table must inhibit.
+	 * @throws IllegalArgumentException if the max load is not between 0 and 1, since lookups need an empty slot to stop at.
+	 */
+	public SwissHashMap(int size, double maxLoad) {
+
+		if(!(maxLoad > 0 && maxLoad < 1))
+			throw new IllegalArgumentException("The max load must be between 0 and 1.");
+
+		tableSize = HashMap.tableSizeFor(Math.max(size, GROUP_WIDTH));
+		allocate(tableSize);
+		this.maxLoad = maxLoad;
+	}
+
+	/**
+	 * Creates new empty arrays of the given length and marks every slot as empty.
+	 * @param length The length of the new table, which must be a power of two of at least one group.
+	 */
+	private void allocate(int length) {
+
+		ctrl = new byte[length];
+		Arrays.fill(ctrl, EMPTY);
+		keys = new Object[length];
+		values = new Object[length];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void clear() {
+
+		allocate(tableSize);
+		numElements = 0;
+		numTombstones = 0;
+		modCount++;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isEmpty() {
+
+		return numElements == 0;
+	}
+
+	/**
+	 * Returns the number of slots in the table.
+	 * @return The number of slots in the table.
+	 */
+	public int capacity() {
+
+		return ctrl.length;
+	}
+
+	/**
+	 * Returns the number of slots currently marked as deleted.
+	 * @return The number of deleted slots.
+	 */
+	public int tombstones() {
+
+		return numTombstones;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int size() {
+
+		return numElements;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(Object key) {
+		//Makes sure the key cannot be null.
+		if(key == null)
+			return null;
+
+		int index = find(key, hash(key));
+
+		if(index < 0)
+			return null;
+		else
+			return (V) values[index];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean containsKey(Object key) {
+
+		return key != null && find(key, hash(key)) >= 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * If the slot's group still has an empty slot, no lookup can have passed through the group, so the slot is marked empty instead of deleted.
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(Object key) {
+		//Makes sure the key cannot be null.
+		if(key == null)
+			return null;
+
+		int index = find(key, hash(key));
+		if(index < 0)
+			return null;
+
+		V oldVal = (V) values[index];
+		keys[index] = null;
+		values[index] = null;
+		numElements--;
+		modCount++;
+
+		int group = index & -GROUP_WIDTH;
+		if(matchEmpty(word(group)) != 0 || matchEmpty(word(group + 8)) != 0)
+			ctrl[index] = EMPTY;
+		else
+		{
+			ctrl[index] = DELETED;
+			numTombstones++;
+		}
+
+		return oldVal;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The key is searched for and an open slot is found in the same pass through the groups.
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(K key, V value) {
+		if(key == null)
+			throw new NullPointerException("The key cannot be null.");
+
+		int hash = hash(key);
+		byte h2 = h2(hash);
+		int groupMask = ctrl.length / GROUP_WIDTH - 1;
+		int group = h1(hash) & groupMask;
+		int open = -1;
+
+		//Groups are visited in triangular order, which reaches every group of a power-of-two table.
+		for(int i = 1; i <= groupMask + 1; i++)
+		{
+			int base = group * GROUP_WIDTH;
+
+			for(int half = base; half < base + GROUP_WIDTH; half += 8)
+			{
+				long word = word(half);
+
+				for(long match = matchByte(word, h2); match != 0; match &= match - 1)
+				{
+					int slot = half + (Long.numberOfTrailingZeros(match) >>> 3);
+					if(ctrl[slot] == h2 && key.equals(keys[slot]))
+					{
+						V oldVal = (V) values[slot];
+						values[slot] = value;
+						return oldVal;
+					}
+				}
+
+				//The first empty or deleted slot on the way is remembered in case the key is not found.
+				long free = word & MSBS;
+				if(open < 0 && free != 0)
+					open = half + (Long.numberOfTrailingZeros(free) >>> 3);
+			}
+
+			if(matchEmpty(word(base)) != 0 || matchEmpty(word(base + 8)) != 0)
+				break;
+
+			group = (group + i) & groupMask;
+		}
+
+		if(ctrl[open] == DELETED)
+			numTombstones--;
+
+		ctrl[open] = h2;
+		keys[open] = key;
+		values[open] = value;
+		numElements++;
+		modCount++;
+
+		//Rehashes if after adding, the live elements and deleted slots together are over max load.
+		//The table only grows if most of that load is live elements, otherwise it is rebuilt at the same size.
+		if(((numElements + numTombstones) / (double)(ctrl.length)) > maxLoad)
+		{
+			if(numTombstones > numElements / 2)
+				compact();
+			else
+				rehash(ctrl.length * 2);
+		}
+
+		return null;
+	}
+
+	/**
+	 * Removes every deleted slot by rehashing the live elements into a table of the same capacity.
+	 * @return True if the table was compacted, false otherwise.
+	 */
+	public boolean compact() {
+
+		if(numTombstones == 0)
+			return true;
+
+		return rehash(ctrl.length);
+	}
+
+	/**
+	 * Increases or decreases the size of the map to the smallest power of two larger than the requested size, and moves all elements to their new locations relative to the new size.
+	 * @param size The requested size for the hash table.
+	 * @return True if rehashing was successful, false otherwise.
+	 */
+	public boolean rehash(int size) {
+
+		int newSize = HashMap.tableSizeFor(Math.max(size, GROUP_WIDTH));
+
+		//Returns false if the new size would increase the load.
+		if((numElements / (double)(newSize)) > maxLoad)
+			return false;
+
+		byte[] oldCtrl = ctrl;
+		Object[] oldKeys = keys;
+		Object[] oldValues = values;
+		allocate(newSize);
+
+		for(int i = 0; i < oldCtrl.length; i++)
+		{
+			//A control byte with its highest bit clear holds a key.
+			if(oldCtrl[i] >= 0)
+			{
+				int hash = hash(oldKeys[i]);
+				int slot = findOpen(hash);
+				ctrl[slot] = h2(hash);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+
+		numTombstones = 0;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Helper method for rehash that finds the first empty slot in the probing sequence of a hash.
+	 * The new table has no deleted slots and is under max load, so an empty slot is always reached.
+	 * @param hash The mixed hash code of the key being placed.
+	 * @return The index of the empty slot.
+	 */
+	private int findOpen(int hash) {
+
+		int groupMask = ctrl.length / GROUP_WIDTH - 1;
+		int group = h1(hash) & groupMask;
+
+		for(int i = 1; ; i++)
+		{
+			int base = group * GROUP_WIDTH;
+
+			for(int half = base; half < base + GROUP_WIDTH; half += 8)
+			{
+				long empty = matchEmpty(word(half));
+				if(empty != 0)
+					return half + (Long.numberOfTrailingZeros(empty) >>> 3);
+			}
+
+			group = (group + i) & groupMask;
+		}
+	}
+
+	/**
+	 * Helper method for get, containsKey and remove that locates the slot of a key.
+	 * Each group is read as two longs, and keys are only compared in the slots whose control byte matches the hash.
+	 * @param key The key being looked for.
+	 * @param hash The mixed hash code of the key.
+	 * @return The index of the key, or -1 if it is not in the table.
+	 */
+	private int find(Object key, int hash) {
+
+		byte h2 = h2(hash);
+		int groupMask = ctrl.length / GROUP_WIDTH - 1;
+		int group = h1(hash) & groupMask;
+
+		for(int i = 1; i <= groupMask + 1; i++)
+		{
+			int base = group * GROUP_WIDTH;
+			boolean sawEmpty = false;
+
+			for(int half = base; half < base + GROUP_WIDTH; half += 8)
+			{
+				long word = word(half);
+
+				for(long match = matchByte(word, h2); match != 0; match &= match - 1)
+				{
+					int slot = half + (Long.numberOfTrailingZeros(match) >>> 3);
+
+					//The match can flag a byte just above a true match by mistake, so the control byte is checked again.
+					if(ctrl[slot] == h2 && key.equals(keys[slot]))
+						return slot;
+				}
+
+				sawEmpty |= matchEmpty(word) != 0;
+			}
+
+			//A key is never placed past a group that had an empty slot.
+			if(sawEmpty)
+				return -1;
+
+			group = (group + i) & groupMask;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Reads eight control bytes starting at a slot.
+	 * @param index The first slot, which must be a multiple of 8.
+	 * @return The control bytes packed into a long, lowest slot first.
+	 */
+	private long word(int index) {
+
+		return (long) CONTROL_WORD.get(ctrl, index);
+	}
+
+	/**
+	 * Finds the bytes of a word equal to a hash fragment, using the classic test for a zero byte.
+	 * @param word Eight control bytes.
+	 * @param h2 The 7 hash bits being looked for.
+	 * @return A long with the highest bit of every matching byte set. A byte just above a true match may also be set.
+	 */
+	private static long matchByte(long word, byte h2) {
+
+		long x = word ^ (LSBS * h2);
+		return (x - LSBS) & ~x & MSBS;
+	}
+
+	/**
+	 * Finds the empty bytes of a word.
+	 * Empty and deleted bytes both have their highest bit set, but only a deleted byte has its second lowest bit set.
+	 * @param word Eight control bytes.
+	 * @return A long with the highest bit of every empty byte set.
+	 */
+	private static long matchEmpty(long word) {
+
+		return word & (~word << 6) & MSBS;
+	}
+
+	/**
+	 * Mixes the hash code of a key so that both the group index and the control byte get well spread bits.
+	 * @param key The key being hashed.
+	 * @return The mixed hash code.
+	 */
+	private static int hash(Object key) {
+
+		return HashMixer.MURMUR3.mix(key.hashCode(), 0);
+	}
+
+	/**
+	 * Returns the part of a hash used to pick the first group.
+	 * @param hash The mixed hash code.
+	 * @return The hash without the 7 bits kept in the control byte.
+	 */
+	private static int h1(int hash) {
+
+		return hash >>> 7;
+	}
+
+	/**
+	 * Returns the part of a hash kept in the control byte.
+	 * @param hash The mixed hash code.
+	 * @return The lowest 7 bits of the hash.
+	 */
+	private static byte h2(int hash) {
+
+		return (byte) (hash & 0x7f);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The set is a live view backed by the table, so removing a key from it removes the key from the map.
+	 */
+	public Set<K> keySet() {
+
+		return new AbstractSet<K>() {
+			@SuppressWarnings("unchecked")
+			public Iterator<K> iterator() {
+				return new SlotIterator<K>() {
+					public K next() { return (K) keys[nextSlot()]; }
+				};
+			}
+			public int size() { return numElements; }
+			public boolean contains(Object o) { return containsKey(o); }
+			public boolean remove(Object o) {
+
+				//The size tells whether a key was removed even when its value was null.
+				int before = numElements;
+				SwissHashMap.this.remove(o);
+				return numElements != before;
+			}
+			public void clear() { SwissHashMap.this.clear(); }
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String toString() {
+
+		StringBuilder s = new StringBuilder();
+		for(int i = 0; i < ctrl.length; i++) {
+			if(ctrl[i] >= 0)  {
+				s.append("[");
+				s.append(i);
+				s.append("]: <");
+				s.append(keys[i]);
+				s.append(",");
+				s.append(values[i]);
+				s.append(">\n");
+			}
+		}
+		if(s.length() > 0)
+			s.deleteCharAt(s.length()-1);
+		return s.toString();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The collection is a live view backed by the value array.
+	 */
+	public Collection<V> values() {
+
+		return new AbstractCollection<V>() {
+			@SuppressWarnings("unchecked")
+			public Iterator<V> iterator() {
+				return new SlotIterator<V>() {
+					public V next() { return (V) values[nextSlot()]; }
+				};
+			}
+			public int size() { return numElements; }
+			public boolean contains(Object o) { return containsValue(o); }
+			public void clear() { SwissHashMap.this.clear(); }
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The set is a live view backed by the arrays. Its entries are created as they are returned, and setting their value changes the map.
+	 */
+	public Set<Map.Entry<K,V>> entrySet() {
+
+		return new AbstractSet<Map.Entry<K,V>>() {
+			public Iterator<Map.Entry<K,V>> iterator() {
+				return new SlotIterator<Map.Entry<K,V>>() {
+					public Map.Entry<K,V> next() { return new SlotEntry(nextSlot()); }
+				};
+			}
+			public int size() { return numElements; }
+			public boolean contains(Object o) {
+
+				if(!(o instanceof Map.Entry) || ((Map.Entry<?,?>) o).getKey() == null)
+					return false;
+
+				Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+				int index = find(e.getKey(), hash(e.getKey()));
+				return index >= 0 && Objects.equals(values[index], e.getValue());
+			}
+			public boolean remove(Object o) {
+
+				if(!contains(o))
+					return false;
+
+				SwissHashMap.this.remove(((Map.Entry<?,?>) o).getKey());
+				return true;
+			}
+			public void clear() { SwissHashMap.this.clear(); }
+		};
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * The table is grown once up front to hold every pair of the other map, so no rehash happens while they are added.
+	 */
+	public void	putAll(Map<? extends K,? extends V> m) {
+
+		//Sizes for the worst case where none of the keys are in this map yet.
+		long required = (long) numElements + numTombstones + m.size();
+		if(required / (double) ctrl.length > maxLoad)
+			rehash((int) Math.min(HashMap.MAXIMUM_CAPACITY, (long) Math.ceil((numElements + (long) m.size()) / maxLoad)));
+
+		for(Map.Entry<? extends K,? extends V> e : m.entrySet())
+			put(e.getKey(), e.getValue());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean containsValue(Object value) {
+
+		for(int i = 0; i < ctrl.length; i++)
+		{
+			if(ctrl[i] >= 0 && Objects.equals(value, values[i]))
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean equals(Object o) {
+
+		if(o == this)
+			return true;
+		if(!(o instanceof Map))
+			return false;
+
+		Map<?,?> m = (Map<?,?>) o;
+		if(m.size() != numElements)
+			return false;
+
+		for(Map.Entry<K,V> e : entrySet())
+		{
+			V value = e.getValue();
+
+			if(value == null ? !(m.get(e.getKey()) == null && m.containsKey(e.getKey())) : !value.equals(m.get(e.getKey())))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int hashCode() {
+
+		int h = 0;
+		for(Map.Entry<K,V> e : entrySet())
+			h += e.hashCode();
+
+		return h;
+	}
+
+	/**
+	 * Entry for a slot of the arrays, since the map keeps no pair objects.
+	 * Setting its value writes to the slot while the key is still there, and goes through put otherwise.
+	 */
+	private class SlotEntry implements Map.Entry<K,V> {
+
+		/**
+		 * The key array the entry was read from.
+		 */
+		private final Object[] keyArray;
+
+		/**
+		 * The index of the slot.
+		 */
+		private final int index;
+
+		/**
+		 * The key of the entry.
+		 */
+		private final K key;
+
+		/**
+		 * The value of the entry when it was last read or set.
+		 */
+		private V value;
+
+		/**
+		 * Constructor that reads the pair out of a slot.
+		 * @param index The index of the slot.
+		 */
+		@SuppressWarnings("unchecked")
+		SlotEntry(int index) {
+
+			keyArray = keys;
+			this.index = index;
+			key = (K) keys[index];
+			value = (V) values[index];
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public K getKey() { return key; }
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public V getValue() { return value; }
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public V setValue(V value) {
+
+			V oldVal = this.value;
+			this.value = value;
+
+			if(keyArray == keys && keys[index] == key)
+				values[index] = value;
+			else
+				put(key, value);
+
+			return oldVal;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean equals(Object o) {
+
+			if(!(o instanceof Map.Entry))
+				return false;
+
+			Map.Entry<?,?> e = (Map.Entry<?,?>) o;
+			return Objects.equals(key, e.getKey()) && Objects.equals(value, e.getValue());
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public int hashCode() { return Objects.hashCode(key) ^ Objects.hashCode(value); }
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public String toString() { return "<" + key + "," + value + ">"; }
+	}
+
+	/**
+	 * Iterator over the full slots of the table, found by their control bytes.
+	 * @param <E> The type of element returned by the iterator.
+	 */
+	private abstract class SlotIterator<E> implements Iterator<E> {
+
+		/**
+		 * The index of the next full slot, or the table length if there is none.
+		 */
+		private int next = -1;
+
+		/**
+		 * The slot returned by the last call to nextSlot, or -1 if it was removed.
+		 */
+		private int current = -1;
+
+		/**
+		 * The mod count the map must still have for the iterator to be valid.
+		 */
+		private int expectedModCount = modCount;
+
+		/**
+		 * Constructor that finds the first full slot.
+		 */
+		SlotIterator() {
+
+			advance();
+		}
+
+		/**
+		 * Moves next forward to the next full slot.
+		 */
+		private void advance() {
+
+			do
+				next++;
+			while(next < ctrl.length && ctrl[next] < 0);
+		}
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean hasNext() {
+
+			return next < ctrl.length;
+		}
+
+		/**
+		 * Returns the index of the next full slot.
+		 * @return The index of the slot.
+		 * @throws NoSuchElementException if there are no more slots.
+		 * @throws ConcurrentModificationException if the map was changed other than through this iterator.
+		 */
+		int nextSlot() {
+
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if(next >= ctrl.length)
+				throw new NoSuchElementException();
+
+			current = next;
+			advance();
+			return current;
+		}
+
+		/**
+		 * {@inheritDoc}
+		 * The slot is only marked empty or deleted, so no other slot moves.
+		 */
+		public void remove() {
+
+			if(current < 0)
+				throw new IllegalStateException();
+			if(modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+
+			SwissHashMap.this.remove(keys[current]);
+			current = -1;
+			expectedModCount = modCount;
+		}
+	}
+}